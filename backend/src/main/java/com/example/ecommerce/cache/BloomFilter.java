@@ -0,0 +1,126 @@
+package com.example.ecommerce.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long 键的布隆过滤器
+ * 按预期元素数和误判率计算位数组大小与哈希函数个数，采用双重哈希生成 k 个位置；
+ * 只能添加不能删除，线程安全（位数组以 CAS 置位）
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashCount;
+
+    private BloomFilter(long bitSize, int hashCount) {
+        this.bits = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+        this.bitSize = bitSize;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * @param expectedInsertions 预期元素数
+     * @param fpp                预期元素数下的误判率
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("误判率必须在 0 和 1 之间：" + fpp);
+        }
+        long n = Math.max(1, expectedInsertions);
+        // m = -n * ln(p) / (ln2)^2，k = m / n * ln2
+        long bitSize = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        if (bitSize > (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("布隆过滤器过大，预期元素数：" + expectedInsertions);
+        }
+        int hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+        return new BloomFilter(bitSize, hashCount);
+    }
+
+    public void put(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitSize);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * 返回 false 表示一定不存在，true 表示可能存在
+     */
+    public boolean mightContain(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 位数组占用的字节数
+     */
+    public long memoryBytes() {
+        return (long) bits.length() * Long.BYTES;
+    }
+
+    /**
+     * 已置位的位数
+     */
+    public long bitCount() {
+        long count = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            count += Long.bitCount(bits.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * 按当前置位比例估算的误判率：(置位数 / 位数)^k
+     */
+    public double currentFpp() {
+        return Math.pow((double) bitCount() / bitSize, hashCount);
+    }
+
+    /**
+     * 按置位数估算的元素个数：-m / k * ln(1 - X / m)
+     */
+    public long approximateCount() {
+        double ratio = (double) bitCount() / bitSize;
+        if (ratio >= 1) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-(double) bitSize / hashCount * Math.log(1 - ratio));
+    }
+
+    /**
+     * MurmurHash3 fmix64
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ecommerce.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.ecommerce.common.StatsProvider;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 跨节点缓存失效总线
+ * 基于 Redis pub/sub 广播失效消息，各节点收到后清理本地 L1 等进程内数据
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBus implements MessageListener, StatsProvider {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder publishErrors = new LongAdder();
+
+    @Value("${app.cache.invalidation.channel:cache:invalidation}")
+    private String channel;
+
+    /**
+     * 订阅某一主题的失效消息
+     */
+    public void subscribe(String topic, Consumer<String> handler) {
+        handlers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * 发布失效消息：先在本节点处理，再广播给其他节点
+     */
+    public void publish(String topic, String key) {
+        dispatch(topic, key);
+
+        InvalidationMessage message = new InvalidationMessage();
+        message.setOrigin(nodeId);
+        message.setTopic(topic);
+        message.setKey(key);
+        try {
+            redisTemplate.convertAndSend(channel, JSON.toJSONString(message));
+            published.increment();
+        } catch (Exception e) {
+            publishErrors.increment();
+            log.warn("广播缓存失效消息失败，主题：{}，key：{}，原因：{}", topic, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            InvalidationMessage invalidation = JSON.parseObject(
+                    new String(message.getBody(), StandardCharsets.UTF_8), InvalidationMessage.class);
+            // 本节点发布的消息已在 publish 时处理
+            if (nodeId.equals(invalidation.getOrigin())) {
+                return;
+            }
+            received.increment();
+            dispatch(invalidation.getTopic(), invalidation.getKey());
+        } catch (Exception e) {
+            log.warn("处理缓存失效消息失败：{}", e.getMessage());
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "cacheInvalidationBus";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("published", published.sum());
+        stats.put("received", received.sum());
+        stats.put("publishErrors", publishErrors.sum());
+        return stats;
+    }
+
+    private void dispatch(String topic, String key) {
+        List<Consumer<String>> topicHandlers = handlers.get(topic);
+        if (topicHandlers == null) {
+            return;
+        }
+        for (Consumer<String> handler : topicHandlers) {
+            try {
+                handler.accept(key);
+            } catch (Exception e) {
+                log.warn("缓存失效处理失败，主题：{}，key：{}，原因：{}", topic, key, e.getMessage());
+            }
+        }
+    }
+
+    @Data
+    public static class InvalidationMessage {
+        private String origin;
+        private String topic;
+        private String key;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.dto.CategoryDTO;
+import com.example.ecommerce.entity.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类树快照（不可变）
+ * 由全部未删除的分类一次性构建，版本号为内容哈希，相同数据在任意节点上得到相同版本。
+ * 返回的 Category 对象在所有请求间共享，调用方不得修改
+ */
+public final class CategoryTree {
+
+    private static final Long ROOT_ID = 0L;
+
+    private static final Comparator<Category> ORDER = Comparator
+            .comparing((Category c) -> c.getSortOrder() != null ? c.getSortOrder() : 0)
+            .thenComparing(Category::getId);
+
+    private final String version;
+
+    private final LocalDateTime builtAt;
+
+    private final Map<Long, Category> categories;
+
+    private final Map<Long, List<Category>> children;
+
+    private final Map<Long, long[]> descendants;
+
+    private final CategoryDTO.TreeResponse tree;
+
+    private CategoryTree(String version, Map<Long, Category> categories, Map<Long, List<Category>> children,
+                         Map<Long, long[]> descendants) {
+        this.version = version;
+        this.builtAt = LocalDateTime.now();
+        this.categories = categories;
+        this.children = children;
+        this.descendants = descendants;
+        this.tree = new CategoryDTO.TreeResponse();
+        this.tree.setVersion(version);
+        this.tree.setCategories(buildNodes(ROOT_ID));
+    }
+
+    /**
+     * 由分类列表构建快照；只有启用的分类出现在子分类列表和树中，按ID查询可查到禁用分类
+     */
+    public static CategoryTree of(List<Category> all) {
+        List<Category> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparing(Category::getId));
+
+        Map<Long, Category> categories = new HashMap<>(sorted.size() * 2);
+        Map<Long, List<Category>> children = new HashMap<>();
+        Map<Long, List<Long>> allChildren = new HashMap<>();
+        for (Category category : sorted) {
+            categories.put(category.getId(), category);
+            allChildren.computeIfAbsent(category.getParentId(), id -> new ArrayList<>()).add(category.getId());
+            if (category.getStatus() != null && category.getStatus() == 1) {
+                children.computeIfAbsent(category.getParentId(), id -> new ArrayList<>()).add(category);
+            }
+        }
+        children.replaceAll((parentId, list) -> {
+            list.sort(ORDER);
+            return Collections.unmodifiableList(list);
+        });
+
+        // 子树（含自身和禁用分类），与 category_closure 表一致
+        Map<Long, long[]> descendants = new HashMap<>(sorted.size() * 2);
+        for (Category category : sorted) {
+            List<Long> subtree = new ArrayList<>();
+            subtree.add(category.getId());
+            for (int i = 0; i < subtree.size() && subtree.size() <= sorted.size(); i++) {
+                subtree.addAll(allChildren.getOrDefault(subtree.get(i), Collections.emptyList()));
+            }
+            long[] ids = new long[subtree.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = subtree.get(i);
+            }
+            Arrays.sort(ids);
+            descendants.put(category.getId(), ids);
+        }
+        return new CategoryTree(hash(sorted), Collections.unmodifiableMap(categories), children, descendants);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    public int size() {
+        return categories.size();
+    }
+
+    public List<Category> getTopCategories() {
+        return getChildren(ROOT_ID);
+    }
+
+    public List<Category> getChildren(Long parentId) {
+        return children.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    /**
+     * 按ID查询分类（含禁用分类），不存在时返回 null
+     */
+    public Category getCategory(Long id) {
+        return categories.get(id);
+    }
+
+    /**
+     * 分类自身及全部后代分类的ID（升序），分类不存在时只含自身
+     * 返回数组在所有请求间共享，调用方不得修改
+     */
+    public long[] getDescendantIds(Long id) {
+        long[] ids = descendants.get(id);
+        return ids != null ? ids : new long[]{id};
+    }
+
+    /**
+     * 分类自身及全部祖先分类的ID（由近及远）
+     */
+    public List<Long> getAncestorIds(Long id) {
+        List<Long> ancestors = new ArrayList<>();
+        Long current = id;
+        while (current != null && !ROOT_ID.equals(current) && ancestors.size() <= categories.size()) {
+            ancestors.add(current);
+            Category category = categories.get(current);
+            current = category != null ? category.getParentId() : null;
+        }
+        return ancestors;
+    }
+
+    public CategoryDTO.TreeResponse getTree() {
+        return tree;
+    }
+
+    private List<CategoryDTO.TreeNode> buildNodes(Long parentId) {
+        List<Category> list = getChildren(parentId);
+        List<CategoryDTO.TreeNode> nodes = new ArrayList<>(list.size());
+        for (Category category : list) {
+            CategoryDTO.TreeNode node = new CategoryDTO.TreeNode();
+            node.setId(category.getId());
+            node.setName(category.getName());
+            node.setDescription(category.getDescription());
+            node.setParentId(category.getParentId());
+            node.setSortOrder(category.getSortOrder());
+            node.setChildren(buildNodes(category.getId()));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static String hash(List<Category> sorted) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Category c : sorted) {
+                String line = c.getId() + "|" + c.getName() + "|" + c.getDescription() + "|" + c.getParentId()
+                        + "|" + c.getSortOrder() + "|" + c.getStatus() + "\n";
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] bytes = digest.digest();
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", bytes[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
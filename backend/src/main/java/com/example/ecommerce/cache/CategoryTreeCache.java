@@ -0,0 +1,128 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.mapper.CategoryMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分类树快照缓存
+ * 分类表很小且很少变更，整棵树保存在内存中，读取不访问数据库；
+ * 任一分类变更后通过失效总线通知所有节点重新加载，新快照构建完成后整体替换
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryTreeCache implements StatsProvider {
+
+    private static final String TOPIC = "category";
+
+    private static final String ALL = "*";
+
+    /**
+     * 重建失败后的最短重试间隔
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final CategoryMapper categoryMapper;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final CacheRefreshExecutor refreshExecutor;
+
+    private final SingleFlight<String, CategoryTree> loads = new SingleFlight<>();
+
+    private final LongAdder rebuilds = new LongAdder();
+
+    private final LongAdder rebuildErrors = new LongAdder();
+
+    private volatile CategoryTree tree;
+
+    private volatile boolean stale;
+
+    private volatile long lastRebuildMillis;
+
+    private volatile long nextRetryAt;
+
+    @PostConstruct
+    public void init() {
+        invalidationBus.subscribe(TOPIC, key -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                // 保留旧快照，下次读取时重试
+                stale = true;
+                rebuildErrors.increment();
+                log.warn("分类树重建失败，原因：{}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 当前分类树快照
+     * 首次访问时从数据库加载，并发请求共享同一次加载；
+     * 上次重建失败时继续返回旧快照，并在后台重试（同一时刻最多一次）
+     */
+    public CategoryTree current() {
+        CategoryTree current = tree;
+        if (current == null) {
+            return loads.load(ALL, this::rebuild);
+        }
+        if (stale && System.currentTimeMillis() >= nextRetryAt) {
+            nextRetryAt = System.currentTimeMillis() + RETRY_INTERVAL_MILLIS;
+            loads.loadAsync(ALL, this::rebuild, refreshExecutor).exceptionally(e -> {
+                rebuildErrors.increment();
+                log.warn("分类树重建失败，继续使用版本 {}，原因：{}", current.getVersion(), e.getMessage());
+                return null;
+            });
+        }
+        return current;
+    }
+
+    /**
+     * 分类变更后调用：所有节点（含本节点）重新加载分类树
+     */
+    public void refresh() {
+        invalidationBus.publish(TOPIC, ALL);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "categoryTree";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        CategoryTree current = tree;
+        stats.put("loaded", current != null);
+        stats.put("stale", stale);
+        if (current != null) {
+            stats.put("version", current.getVersion());
+            stats.put("size", current.size());
+            stats.put("builtAt", current.getBuiltAt().toString());
+        }
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("rebuildErrors", rebuildErrors.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("loads", loads.snapshot());
+        return stats;
+    }
+
+    private synchronized CategoryTree rebuild() {
+        long start = System.currentTimeMillis();
+        CategoryTree rebuilt = CategoryTree.of(categoryMapper.findAll());
+        tree = rebuilt;
+        stale = false;
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        rebuilds.increment();
+        log.debug("分类树已重建，版本：{}，分类数：{}", rebuilt.getVersion(), rebuilt.size());
+        return rebuilt;
+    }
+}
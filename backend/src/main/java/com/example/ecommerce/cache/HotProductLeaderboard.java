@@ -0,0 +1,209 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.event.ProductChangedEvent;
+import com.example.ecommerce.mapper.ProductMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热销商品排行榜（Redis 有序集合）
+ * 全站和每个分类（含全部子分类的商品）各维护一个按销量排序的榜单，只保留前 capacity 名；
+ * 销量、上下架、删除等变更提交后增量更新，榜单过期或缺失时从数据库重建，修正下架/删除留下的空位
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotProductLeaderboard implements StatsProvider {
+
+    private static final String KEY_PREFIX = "product:hot:";
+
+    private static final String GLOBAL_KEY = KEY_PREFIX + "all";
+
+    /**
+     * 占位成员：保证空榜单也以 key 形式存在，避免反复重建；读取时按分数 >= 0 排除
+     */
+    private static final String PLACEHOLDER = "0";
+
+    /**
+     * 榜单存在时才写入并裁剪到 capacity（加占位成员），不存在时等待下次读取重建
+     */
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) " +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[3]) + 2)) " +
+            "return 1", Long.class);
+
+    /**
+     * 原子替换整个榜单：ARGV[1] 为过期秒数，其后为 (score, member) 对
+     */
+    private static final RedisScript<Long> REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 2, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ProductMapper productMapper;
+
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final CacheStats stats = new CacheStats();
+
+    private final LongAdder updates = new LongAdder();
+
+    @Value("${app.leaderboard.capacity:100}")
+    private int capacity;
+
+    @Value("${app.leaderboard.ttl:1h}")
+    private Duration ttl;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 读取销量前 limit 的商品ID（按销量降序）
+     *
+     * @param categoryId 分类ID，为空时读取全站榜单
+     * @return 商品ID列表；Redis 不可用时返回 null，由调用方回退到数据库
+     */
+    public List<Long> top(Long categoryId, int limit) {
+        String key = key(categoryId);
+        try {
+            Set<String> members = redisTemplate.opsForZSet().reverseRangeByScore(key, 0, Double.POSITIVE_INFINITY, 0, limit);
+            if (members == null || members.isEmpty()) {
+                // 空榜单仍有占位成员，key 不存在才需要重建
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                    stats.recordHit();
+                    return Collections.emptyList();
+                }
+                stats.recordMiss();
+                members = rebuild(categoryId, key, limit);
+            } else {
+                stats.recordHit();
+            }
+            List<Long> productIds = new ArrayList<>(members.size());
+            for (String member : members) {
+                productIds.add(Long.valueOf(member));
+            }
+            return productIds;
+        } catch (Exception e) {
+            stats.recordError();
+            log.warn("读取热销榜单失败，key：{}，原因：{}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从榜单中移除（读取时发现商品已下架或已移出该分类）
+     */
+    public void remove(Long categoryId, Long productId) {
+        try {
+            redisTemplate.opsForZSet().remove(key(categoryId), String.valueOf(productId));
+        } catch (Exception e) {
+            stats.recordError();
+            log.warn("移除热销榜单商品失败，商品ID：{}，原因：{}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * 事务提交后按数据库中的最新销量和状态更新榜单
+     * Redis 为各节点共享，只需在发起变更的节点执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED
+                || event.getType() == ProductChangedEvent.Type.IMAGES_CHANGED) {
+            return;
+        }
+        Long productId = event.getProductId();
+        try {
+            Product product = productMapper.selectById(productId);
+            String member = String.valueOf(productId);
+            // 商品计入所在分类及其所有上级分类的榜单
+            List<String> keys = new ArrayList<>();
+            keys.add(GLOBAL_KEY);
+            if (product != null) {
+                for (Long categoryId : categoryTreeCache.current().getAncestorIds(product.getCategoryId())) {
+                    keys.add(key(categoryId));
+                }
+            }
+            if (product == null || product.getStatus() == null || product.getStatus() != 1) {
+                for (String key : keys) {
+                    redisTemplate.opsForZSet().remove(key, member);
+                }
+            } else {
+                String score = String.valueOf(product.getSalesCount() != null ? product.getSalesCount() : 0);
+                String limit = String.valueOf(capacity);
+                for (String key : keys) {
+                    redisTemplate.execute(UPDATE_SCRIPT, Collections.singletonList(key), score, member, limit);
+                }
+            }
+            updates.increment();
+        } catch (Exception e) {
+            stats.recordError();
+            log.warn("更新热销榜单失败，商品ID：{}，原因：{}", productId, e.getMessage());
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "hotProductLeaderboard";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> snapshot = stats.snapshot();
+        snapshot.put("updates", updates.sum());
+        snapshot.put("capacity", capacity);
+        return snapshot;
+    }
+
+    /**
+     * 从数据库读取前 capacity 名写入榜单，返回前 limit 名
+     */
+    private Set<String> rebuild(Long categoryId, String key, int limit) {
+        long start = System.nanoTime();
+        List<Product> products = productMapper.findTopSellers(categoryId, capacity);
+
+        List<String> args = new ArrayList<>(products.size() * 2 + 3);
+        args.add(String.valueOf(Math.max(1, ttl.getSeconds())));
+        args.addAll(Arrays.asList("-1", PLACEHOLDER));
+        Set<String> members = new LinkedHashSet<>();
+        for (Product product : products) {
+            String member = String.valueOf(product.getId());
+            args.add(String.valueOf(product.getSalesCount() != null ? product.getSalesCount() : 0));
+            args.add(member);
+            if (members.size() < limit) {
+                members.add(member);
+            }
+        }
+        redisTemplate.execute(REBUILD_SCRIPT, Collections.singletonList(key), args.toArray());
+        stats.recordLoad(System.nanoTime() - start);
+        log.debug("热销榜单已重建，key：{}，商品数：{}", key, products.size());
+        return members;
+    }
+
+    private static String key(Long categoryId) {
+        return categoryId == null ? GLOBAL_KEY : KEY_PREFIX + "category:" + categoryId;
+    }
+}
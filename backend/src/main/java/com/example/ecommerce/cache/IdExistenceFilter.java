@@ -0,0 +1,208 @@
+package com.example.ecommerce.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * ID 存在性过滤：布隆过滤器 + 短期负缓存，防止不存在的 ID 穿透到数据库
+ * <ul>
+ *     <li>布隆过滤器判定不存在的 ID 直接拒绝</li>
+ *     <li>已删除的 ID 和布隆误判的 ID 在数据库未命中后写入负缓存，过期前直接拒绝</li>
+ *     <li>大于上次重建时数据库最大 ID 的 ID 放行到数据库（可能是其它节点新建、广播尚未到达或丢失的 ID），不存在时由负缓存拦截重复请求</li>
+ * </ul>
+ * 过滤器构建完成前全部放行；元素只增不减，由定期重建回收已删除的 ID 并按实际数量重新分配空间
+ */
+@Slf4j
+public class IdExistenceFilter {
+
+    private final String name;
+
+    private final long expectedInsertions;
+
+    private final double fpp;
+
+    private final LocalCache<Long, Boolean> missing;
+
+    private final LongAdder passed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder negativeHits = new LongAdder();
+
+    private final LongAdder databaseMisses = new LongAdder();
+
+    private volatile BloomFilter filter;
+
+    private volatile long maxId;
+
+    /**
+     * 上次重建时从数据库读到的最大 ID，不超过它且不在过滤器中的 ID 一定不存在
+     */
+    private volatile long builtMaxId;
+
+    private volatile long size;
+
+    private volatile long lastBuildMillis;
+
+    /**
+     * 重建期间新增的 ID，重建完成后补入新过滤器
+     */
+    private long[] pending;
+
+    private int pendingCount;
+
+    /**
+     * @param expectedInsertions 预期 ID 数，实际数量更多时按实际数量的 2 倍分配
+     * @param fpp                误判率
+     */
+    public IdExistenceFilter(String name, long expectedInsertions, double fpp,
+                             int negativeMaximumSize, Duration negativeTtl) {
+        this.name = name;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.missing = new LocalCache<>(negativeMaximumSize, negativeTtl);
+    }
+
+    /**
+     * 判断 ID 是否可能存在；返回 false 时调用方应直接按不存在处理，不查询数据库
+     */
+    public boolean mightExist(Long id) {
+        BloomFilter current = filter;
+        if (current == null || id == null) {
+            return true;
+        }
+        if (missing.getIfPresent(id) != null) {
+            negativeHits.increment();
+            return false;
+        }
+        if (!current.mightContain(id) && id <= builtMaxId) {
+            rejected.increment();
+            return false;
+        }
+        passed.increment();
+        return true;
+    }
+
+    /**
+     * 数据库中未找到时调用，写入负缓存
+     */
+    public void recordMissing(Long id) {
+        databaseMisses.increment();
+        missing.put(id, Boolean.TRUE);
+    }
+
+    /**
+     * 新增 ID
+     */
+    public synchronized void add(long id) {
+        missing.invalidate(id);
+        if (filter != null) {
+            filter.put(id);
+        }
+        if (pending != null) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount << 1);
+            }
+            pending[pendingCount++] = id;
+        }
+        if (id > maxId) {
+            maxId = id;
+        }
+        size++;
+    }
+
+    /**
+     * 删除 ID：布隆过滤器无法删除，写入负缓存，下次重建时移除
+     */
+    public void remove(long id) {
+        missing.put(id, Boolean.TRUE);
+    }
+
+    /**
+     * 从数据库分批读取全部 ID 重建过滤器，构建期间继续使用旧过滤器
+     *
+     * @param loader    (lastId, limit) -> 大于 lastId 的升序 ID
+     * @param batchSize 每批读取的 ID 数
+     */
+    public void rebuild(BiFunction<Long, Integer, List<Long>> loader, int batchSize) {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pending = new long[64];
+            pendingCount = 0;
+        }
+        try {
+            long[] ids = new long[1024];
+            int count = 0;
+            long lastId = 0;
+            while (true) {
+                List<Long> batch = loader.apply(lastId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Long id : batch) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count << 1);
+                    }
+                    ids[count++] = id;
+                }
+                lastId = batch.get(batch.size() - 1);
+            }
+
+            BloomFilter rebuilt = BloomFilter.create(Math.max(expectedInsertions, (long) count * 2), fpp);
+            for (int i = 0; i < count; i++) {
+                rebuilt.put(ids[i]);
+            }
+            synchronized (this) {
+                long max = lastId;
+                for (int i = 0; i < pendingCount; i++) {
+                    rebuilt.put(pending[i]);
+                    max = Math.max(max, pending[i]);
+                }
+                filter = rebuilt;
+                builtMaxId = lastId;
+                maxId = Math.max(maxId, max);
+                size = count + pendingCount;
+                pending = null;
+            }
+            lastBuildMillis = System.currentTimeMillis() - start;
+            log.info("{} 布隆过滤器构建完成，ID 数：{}，位数：{}，哈希函数数：{}，内存：{}KB，耗时：{}ms",
+                    name, count, rebuilt.bitSize(), rebuilt.hashCount(), rebuilt.memoryBytes() / 1024, lastBuildMillis);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        BloomFilter current = filter;
+        snapshot.put("ready", current != null);
+        snapshot.put("configuredFpp", fpp);
+        if (current != null) {
+            snapshot.put("size", size);
+            snapshot.put("maxId", maxId);
+            snapshot.put("builtMaxId", builtMaxId);
+            snapshot.put("bitSize", current.bitSize());
+            snapshot.put("hashCount", current.hashCount());
+            snapshot.put("memoryBytes", current.memoryBytes());
+            snapshot.put("approximateCount", current.approximateCount());
+            snapshot.put("currentFpp", current.currentFpp());
+        }
+        snapshot.put("passed", passed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("negativeHits", negativeHits.sum());
+        snapshot.put("databaseMisses", databaseMisses.sum());
+        snapshot.put("lastBuildMillis", lastBuildMillis);
+        snapshot.put("negativeCache", missing.snapshot());
+        return snapshot;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内有界缓存（L1）
+ * 按 key 哈希分段，每段是一个按访问顺序排列的 LinkedHashMap，超出容量时淘汰最久未访问的条目
+ */
+public class LocalCache<K, V> {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final long ttlNanos;
+
+    private final CacheStats stats = new CacheStats();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private final int maximumSize;
+
+    @SuppressWarnings("unchecked")
+    public LocalCache(int maximumSize, Duration ttl) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        int segmentCapacity = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentCapacity, stats);
+        }
+    }
+
+    /**
+     * 读取缓存，不存在或已过期时返回 null
+     */
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            CacheEntry<V> entry = segment.get(key);
+            if (entry == null) {
+                stats.recordMiss();
+                return null;
+            }
+            if (entry.expireAt - System.nanoTime() < 0) {
+                segment.remove(key);
+                expirations.increment();
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            return entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new CacheEntry<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = stats.snapshot();
+        snapshot.put("expirations", expirations.sum());
+        snapshot.put("size", size());
+        snapshot.put("maximumSize", maximumSize);
+        return snapshot;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENT_COUNT - 1)];
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private CacheEntry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, CacheEntry<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private final transient CacheStats stats;
+
+        private Segment(int capacity, CacheStats stats) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.stats = stats;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+            if (size() > capacity) {
+                stats.recordEviction();
+                return true;
+            }
+            return false;
+        }
+    }
+}
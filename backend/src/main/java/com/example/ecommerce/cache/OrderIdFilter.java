@@ -0,0 +1,135 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.datasource.RoutingContext;
+import com.example.ecommerce.event.OrderCreatedEvent;
+import com.example.ecommerce.mapper.OrderMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单ID存在性过滤，拦截不存在的订单ID，不再查询数据库
+ * 启动后构建并定期重建；订单创建提交后通过失效总线同步到所有节点
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderIdFilter implements StatsProvider {
+
+    private static final String TOPIC = "order-id";
+
+    private final OrderMapper orderMapper;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-id-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.bloom.order.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.bloom.order.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.bloom.order.fpp:0.01}")
+    private double fpp;
+
+    @Value("${app.bloom.order.negative-maximum-size:100000}")
+    private int negativeMaximumSize;
+
+    @Value("${app.bloom.order.negative-ttl:60s}")
+    private Duration negativeTtl;
+
+    @Value("${app.bloom.order.rebuild-interval:6h}")
+    private Duration rebuildInterval;
+
+    @Value("${app.bloom.build-batch-size:10000}")
+    private int buildBatchSize;
+
+    private IdExistenceFilter filter;
+
+    @PostConstruct
+    public void init() {
+        filter = new IdExistenceFilter("订单ID", expectedInsertions, fpp, negativeMaximumSize, negativeTtl);
+        if (enabled) {
+            invalidationBus.subscribe(TOPIC, orderId -> filter.add(Long.parseLong(orderId)));
+        }
+    }
+
+    /**
+     * 订单创建提交后通知所有节点（含本节点，同步执行，创建接口返回前即已生效）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (enabled) {
+            invalidationBus.publish(TOPIC, String.valueOf(event.getOrderId()));
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台构建，构建完成前全部放行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            builder.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 订单ID是否可能存在，返回 false 时可直接按订单不存在处理
+     */
+    public boolean mightExist(Long orderId) {
+        return filter.mightExist(orderId);
+    }
+
+    /**
+     * 数据库中未找到订单时调用
+     */
+    public void recordMissing(Long orderId) {
+        filter.recordMissing(orderId);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "orderIdFilter";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return filter.snapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    private void rebuild() {
+        try {
+            // 从库延迟期间提交的 ID 不在从库的结果中，重建读主库
+            RoutingContext.primary(() -> {
+                filter.rebuild(orderMapper::findIdsAfter, buildBatchSize);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("订单ID布隆过滤器构建失败，继续使用旧过滤器：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * 商品变更广播
+ * 事务提交后把 ProductChangedEvent 通过失效总线发给所有节点，供进程内索引等组件增量更新。
+ * 消息格式为 商品ID:类型，带变更值时为 商品ID:类型:值
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductChangeBroadcaster {
+
+    private static final String TOPIC = "product";
+
+    private static final char SEPARATOR = ':';
+
+    private final CacheInvalidationBus invalidationBus;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        String message = event.getProductId() + String.valueOf(SEPARATOR) + event.getType();
+        if (event.getValue() != null) {
+            message += SEPARATOR + String.valueOf(event.getValue());
+        }
+        invalidationBus.publish(TOPIC, message);
+    }
+
+    /**
+     * 订阅所有节点（含本节点）已提交的商品变更
+     */
+    public void subscribe(Consumer<ProductChangedEvent> handler) {
+        invalidationBus.subscribe(TOPIC, key -> {
+            int index = key.indexOf(SEPARATOR);
+            int valueIndex = key.indexOf(SEPARATOR, index + 1);
+            Long productId = Long.valueOf(key.substring(0, index));
+            if (valueIndex < 0) {
+                handler.accept(new ProductChangedEvent(productId, ProductChangedEvent.Type.valueOf(key.substring(index + 1))));
+                return;
+            }
+            ProductChangedEvent.Type type = ProductChangedEvent.Type.valueOf(key.substring(index + 1, valueIndex));
+            Integer value = Integer.valueOf(key.substring(valueIndex + 1));
+            handler.accept(new ProductChangedEvent(productId, type, Collections.emptyList(), value));
+        });
+    }
+}
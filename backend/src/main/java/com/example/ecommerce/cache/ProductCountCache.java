@@ -0,0 +1,102 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.event.ProductChangedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * 商品列表总数缓存
+ * 按归一化筛选条件缓存 COUNT(*) 结果；商品新增、删除、修改、上下架以及分类层级变化时清空所有节点的缓存
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCountCache implements StatsProvider {
+
+    private static final String TOPIC = "product-count";
+
+    private static final String CATEGORY_TOPIC = "category";
+
+    private static final String ALL = "*";
+
+    private final CacheInvalidationBus invalidationBus;
+
+    /**
+     * 失效代数：回源期间发生失效时丢弃本次结果，避免把旧计数写回缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.cache.product-count.maximum-size:10000}")
+    private int maximumSize;
+
+    @Value("${app.cache.product-count.ttl:5m}")
+    private Duration ttl;
+
+    private LocalCache<String, Long> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maximumSize, ttl);
+        invalidationBus.subscribe(TOPIC, key -> invalidateAll());
+        // 分类移动会改变包含子分类的筛选结果
+        invalidationBus.subscribe(CATEGORY_TOPIC, key -> invalidateAll());
+    }
+
+    /**
+     * 读取精确总数，未命中时通过 loader 执行 COUNT 查询
+     */
+    public long get(ProductDTO.ProductQuery query, ToLongFunction<ProductDTO.ProductQuery> loader) {
+        String key = query.filterKey();
+        Long count = cache.getIfPresent(key);
+        if (count != null) {
+            return count;
+        }
+
+        long currentGeneration = generation.get();
+        long total = loader.applyAsLong(query);
+        if (generation.get() == currentGeneration) {
+            cache.put(key, total);
+        }
+        return total;
+    }
+
+    private void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+            case DELETED:
+            case STATUS_CHANGED:
+                invalidationBus.publish(TOPIC, ALL);
+                break;
+            default:
+                // 库存、销量、图片变化不影响筛选结果的数量
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "productCountCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.snapshot();
+        stats.put("generation", generation.get());
+        return stats;
+    }
+}
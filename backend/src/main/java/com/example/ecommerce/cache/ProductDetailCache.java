@@ -0,0 +1,151 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.event.ProductChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 商品详情缓存（Read-Through）
+ * 组装完成的 ProductResponse（含图片列表）先查进程内 L1，再查 Redis L2，Redis 不可用时直接回源数据库；
+ * 同一商品的并发未命中合并为一次回源，临近过期或过期不久的条目在后台刷新
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductDetailCache implements StatsProvider {
+
+    private static final String KEY_PREFIX = "product:detail:";
+
+    private static final String TOPIC = "product-detail";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final CacheRefreshExecutor refreshExecutor;
+
+    private final ScheduledExecutorService delayedEvictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "product-cache-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.cache.product-detail.ttl:30m}")
+    private Duration ttl;
+
+    @Value("${app.cache.product-detail.ttl-jitter:5m}")
+    private Duration ttlJitter;
+
+    @Value("${app.cache.product-detail.double-delete-delay:500ms}")
+    private Duration doubleDeleteDelay;
+
+    @Value("${app.cache.product-detail.local-maximum-size:10000}")
+    private int localMaximumSize;
+
+    @Value("${app.cache.product-detail.local-ttl:60s}")
+    private Duration localTtl;
+
+    @Value("${app.cache.product-detail.stale-ttl:5m}")
+    private Duration staleTtl;
+
+    @Value("${app.cache.product-detail.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    private TwoLevelCache<ProductDTO.ProductResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new TwoLevelCache<>(KEY_PREFIX, ProductDTO.ProductResponse.class, redisTemplate,
+                localMaximumSize, localTtl, ttl, ttlJitter, staleTtl, earlyRefreshBeta, refreshExecutor);
+        invalidationBus.subscribe(TOPIC, cache::evictLocal);
+    }
+
+    /**
+     * 读取商品详情，未命中时通过 loader 回源并写入缓存
+     *
+     * @param productId 商品ID
+     * @param loader    回源函数，商品不存在时返回 null
+     * @return 商品详情，不存在时返回 null
+     */
+    public ProductDTO.ProductResponse get(Long productId, Function<Long, ProductDTO.ProductResponse> loader) {
+        return cache.get(String.valueOf(productId), () -> loader.apply(productId));
+    }
+
+    /**
+     * 批量读取商品详情，所有未命中的商品通过一次 loader 调用回源
+     *
+     * @param productIds 商品ID
+     * @param loader     批量回源函数，返回商品ID -> 详情，不存在的商品不放入结果
+     * @return 商品ID -> 详情，不存在的商品不放入结果
+     */
+    public Map<Long, ProductDTO.ProductResponse> getAll(Collection<Long> productIds,
+                                                         Function<List<Long>, Map<Long, ProductDTO.ProductResponse>> loader) {
+        List<String> keys = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            keys.add(String.valueOf(productId));
+        }
+        Map<String, ProductDTO.ProductResponse> cached = cache.getAll(keys, missingKeys -> {
+            List<Long> missingIds = new ArrayList<>(missingKeys.size());
+            for (String key : missingKeys) {
+                missingIds.add(Long.valueOf(key));
+            }
+            Map<String, ProductDTO.ProductResponse> loaded = new HashMap<>();
+            loader.apply(missingIds).forEach((productId, product) -> loaded.put(String.valueOf(productId), product));
+            return loaded;
+        });
+        Map<Long, ProductDTO.ProductResponse> result = new HashMap<>(cached.size() * 2);
+        cached.forEach((key, product) -> result.put(Long.valueOf(key), product));
+        return result;
+    }
+
+    /**
+     * 删除 Redis 中的缓存，并通知所有节点清理 L1
+     */
+    public void evict(Long productId) {
+        String key = String.valueOf(productId);
+        cache.evictRemote(key);
+        invalidationBus.publish(TOPIC, key);
+    }
+
+    /**
+     * 事务提交后失效缓存，并延迟再删一次，避免并发读在提交前回填旧值
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Long productId = event.getProductId();
+        evict(productId);
+        delayedEvictor.schedule(() -> evict(productId), doubleDeleteDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "productDetailCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return cache.snapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delayedEvictor.shutdownNow();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.datasource.RoutingContext;
+import com.example.ecommerce.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品ID存在性过滤，拦截不存在的商品ID（如随机ID爬取），不再查询数据库
+ * 启动后构建并定期重建；商品新建、删除通过商品变更广播同步到所有节点
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductIdFilter implements StatsProvider {
+
+    private final ProductMapper productMapper;
+
+    private final ProductChangeBroadcaster changeBroadcaster;
+
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "product-id-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.bloom.product.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.bloom.product.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.bloom.product.fpp:0.01}")
+    private double fpp;
+
+    @Value("${app.bloom.product.negative-maximum-size:100000}")
+    private int negativeMaximumSize;
+
+    @Value("${app.bloom.product.negative-ttl:60s}")
+    private Duration negativeTtl;
+
+    @Value("${app.bloom.product.rebuild-interval:6h}")
+    private Duration rebuildInterval;
+
+    @Value("${app.bloom.build-batch-size:10000}")
+    private int buildBatchSize;
+
+    private IdExistenceFilter filter;
+
+    @PostConstruct
+    public void init() {
+        filter = new IdExistenceFilter("商品ID", expectedInsertions, fpp, negativeMaximumSize, negativeTtl);
+        if (enabled) {
+            changeBroadcaster.subscribe(event -> {
+                switch (event.getType()) {
+                    case CREATED:
+                        filter.add(event.getProductId());
+                        break;
+                    case DELETED:
+                        filter.remove(event.getProductId());
+                        break;
+                    default:
+                        break;
+                }
+            });
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台构建，构建完成前全部放行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            builder.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 商品ID是否可能存在，返回 false 时可直接按商品不存在处理
+     */
+    public boolean mightExist(Long productId) {
+        return filter.mightExist(productId);
+    }
+
+    /**
+     * 数据库中未找到商品时调用
+     */
+    public void recordMissing(Long productId) {
+        filter.recordMissing(productId);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "productIdFilter";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return filter.snapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    private void rebuild() {
+        try {
+            // 从库延迟期间提交的 ID 不在从库的结果中，重建读主库
+            RoutingContext.primary(() -> {
+                filter.rebuild(productMapper::findIdsAfter, buildBatchSize);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("商品ID布隆过滤器构建失败，继续使用旧过滤器：{}", e.getMessage());
+        }
+    }
+}
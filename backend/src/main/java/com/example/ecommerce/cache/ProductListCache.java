@@ -0,0 +1,339 @@
+package com.example.ecommerce.cache;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.event.ProductChangedEvent;
+import com.example.ecommerce.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 商品列表查询结果缓存
+ * 以规范化的查询条件（筛选 + 排序 + 分页）为 key，只缓存商品ID顺序、总数、游标和分面，
+ * 命中时商品数据从详情缓存读取，库存、图片等变更无需失效列表。
+ * <p>
+ * 失效按标签：每个条目带有查询范围标签（分类 c:{id}，无分类或带分面时为全局 *），按销量/相关度排序的条目另带 s: 前缀标签；
+ * 标签只记版本号，失效即版本号加一，读取时版本不一致视为未命中。
+ * 商品变更只使其所在分类及上级分类（和全局）的条目失效，销量变更只影响按销量/相关度排序的条目
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductListCache implements StatsProvider {
+
+    private static final String TOPIC = "product-list";
+
+    private static final String GLOBAL = "*";
+
+    /**
+     * 所有条目都带的标签，分类树变更时整体失效
+     */
+    private static final String ALL = "@";
+
+    private static final String SALES_PREFIX = "s:";
+
+    private static final String CATEGORY_PREFIX = "c:";
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final ProductMapper productMapper;
+
+    private final ConcurrentHashMap<String, AtomicLong> tagVersions = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, TagStats> tagStats = new ConcurrentHashMap<>();
+
+    private final SingleFlight<String, ProductDTO.PageResponse<ProductDTO.ProductListResponse>> loads = new SingleFlight<>();
+
+    private final ScheduledExecutorService delayedInvalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "product-list-invalidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.cache.product-list.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.product-list.maximum-size:5000}")
+    private int maximumSize;
+
+    @Value("${app.cache.product-list.ttl:60s}")
+    private Duration ttl;
+
+    @Value("${app.cache.product-list.double-invalidate-delay:1s}")
+    private Duration doubleInvalidateDelay;
+
+    private LocalCache<String, CachedPage> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maximumSize, ttl);
+        // 进程内搜索索引在收到广播后异步更新，延迟再失效一次，避免期间按旧索引计算的结果被缓存
+        invalidationBus.subscribe(TOPIC, key -> {
+            invalidate(key);
+            delayedInvalidator.schedule(() -> invalidate(key), doubleInvalidateDelay.toMillis(), TimeUnit.MILLISECONDS);
+        });
+        invalidationBus.subscribe("category", key -> bump(ALL));
+    }
+
+    /**
+     * 读取商品列表，未命中时通过 loader 查询；商品数据通过 hydrator 按ID从详情缓存读取
+     * 须在 loader 修改查询条件之前调用
+     */
+    public ProductDTO.PageResponse<ProductDTO.ProductListResponse> get(
+            ProductDTO.ProductQuery query,
+            Function<ProductDTO.ProductQuery, ProductDTO.PageResponse<ProductDTO.ProductListResponse>> loader,
+            Function<List<Long>, List<ProductDTO.ProductListResponse>> hydrator) {
+        if (!enabled) {
+            return loader.apply(query);
+        }
+        String key = keyOf(query);
+        String[] tags = tagsOf(query);
+        TagStats stats = tagStats.computeIfAbsent(tags[1], tag -> new TagStats());
+
+        CachedPage cached = cache.getIfPresent(key);
+        if (cached != null && cached.isCurrent(this)) {
+            stats.hits.increment();
+            return cached.toResponse(hydrator);
+        }
+        stats.misses.increment();
+        return loads.load(key, () -> {
+            // 先取版本号再查询，查询期间发生的失效会使本条目在下次读取时失效
+            long[] versions = new long[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                versions[i] = version(tags[i]).get();
+            }
+            ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = loader.apply(query);
+            cache.put(key, new CachedPage(response, tags, versions));
+            return response;
+        });
+    }
+
+    /**
+     * 事务提交后按变更类型计算受影响的分类，广播给所有节点
+     * 库存、图片不影响列表中的商品及其顺序（商品数据命中时从详情缓存读取），不失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        ProductChangedEvent.Type type = event.getType();
+        if (type == ProductChangedEvent.Type.STOCK_CHANGED || type == ProductChangedEvent.Type.IMAGES_CHANGED) {
+            return;
+        }
+        Set<Long> categoryIds = new LinkedHashSet<>(event.getCategoryIds());
+        if (categoryIds.isEmpty()) {
+            Product product = productMapper.selectById(event.getProductId());
+            if (product != null) {
+                categoryIds.add(product.getCategoryId());
+            }
+        }
+        String prefix = type == ProductChangedEvent.Type.SALES_CHANGED ? SALES_PREFIX : "";
+        StringBuilder key = new StringBuilder(prefix);
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                key.append(key.length() > prefix.length() ? "," : "").append(categoryId);
+            }
+        }
+        invalidationBus.publish(TOPIC, key.length() > prefix.length() ? key.toString() : prefix + GLOBAL);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "productListCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(cache.snapshot());
+        stats.put("loads", loads.snapshot());
+        Map<String, Object> tags = new TreeMap<>();
+        tagStats.forEach((tag, tagStat) -> tags.put(tag, tagStat.snapshot()));
+        stats.put("tags", tags);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delayedInvalidator.shutdownNow();
+    }
+
+    /**
+     * 处理失效消息："[s:]分类ID,分类ID" 或 "[s:]*"
+     * 分类条目包含全部子分类的商品，失效所在分类及其所有上级分类；全局条目总是失效
+     */
+    private void invalidate(String key) {
+        String prefix = key.startsWith(SALES_PREFIX) ? SALES_PREFIX : "";
+        String categories = key.substring(prefix.length());
+        bump(prefix + GLOBAL);
+        if (!GLOBAL.equals(categories)) {
+            try {
+                CategoryTree tree = categoryTreeCache.current();
+                for (String categoryId : categories.split(",")) {
+                    for (Long ancestorId : tree.getAncestorIds(Long.valueOf(categoryId))) {
+                        bump(prefix + CATEGORY_PREFIX + ancestorId);
+                    }
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.warn("读取分类树失败，失效全部分类的列表缓存，原因：{}", e.getMessage());
+            }
+        }
+        // 分类未知时失效该前缀下的全部分类标签
+        for (String tag : tagVersions.keySet()) {
+            if (prefix.isEmpty() ? !tag.startsWith(SALES_PREFIX) : tag.startsWith(prefix)) {
+                bump(tag);
+            }
+        }
+    }
+
+    private void bump(String tag) {
+        version(tag).incrementAndGet();
+        TagStats stats = tagStats.get(tag.startsWith(SALES_PREFIX) ? tag.substring(SALES_PREFIX.length()) : tag);
+        if (stats != null) {
+            stats.invalidations.increment();
+        }
+    }
+
+    private AtomicLong version(String tag) {
+        return tagVersions.computeIfAbsent(tag, t -> new AtomicLong());
+    }
+
+    /**
+     * 规范化的查询条件：筛选条件 + 原始搜索方式 + 排序 + 分页 + 总数方式 + 是否分面
+     */
+    private static String keyOf(ProductDTO.ProductQuery query) {
+        return query.filterKey() +
+                "|searchMode=" + (query.getSearchMode() == null ? "" : query.getSearchMode()) +
+                "|sort=" + query.getSortBy() + " " + query.getSortOrder() +
+                "|page=" + query.getPage() + "|size=" + query.getSize() +
+                "|cursor=" + (query.getCursor() == null ? "" : query.getCursor()) +
+                "|count=" + query.getCountMode() +
+                "|facets=" + query.isFacets();
+    }
+
+    /**
+     * 条目标签：[0] 全局版本，[1] 查询范围，[2] 销量相关排序时的范围
+     * 分面统计的分类维度不受分类筛选限制，带分面的查询按全局处理
+     */
+    private static String[] tagsOf(ProductDTO.ProductQuery query) {
+        String scope = query.getCategoryId() == null || query.isFacets() ? GLOBAL : CATEGORY_PREFIX + query.getCategoryId();
+        boolean salesSensitive = "sales_count".equals(query.getSortBy()) || "relevance".equals(query.getSortBy());
+        return salesSensitive ? new String[]{ALL, scope, SALES_PREFIX + scope} : new String[]{ALL, scope};
+    }
+
+    private static final class CachedPage {
+
+        private final long[] productIds;
+
+        private final Long total;
+
+        private final Integer page;
+
+        private final Integer size;
+
+        private final Integer pages;
+
+        private final String nextCursor;
+
+        private final Boolean hasMore;
+
+        private final Boolean totalExact;
+
+        private final ProductDTO.FacetResponse facets;
+
+        private final String[] tags;
+
+        private final long[] versions;
+
+        private CachedPage(ProductDTO.PageResponse<ProductDTO.ProductListResponse> response, String[] tags, long[] versions) {
+            List<ProductDTO.ProductListResponse> records = response.getRecords();
+            this.productIds = new long[records == null ? 0 : records.size()];
+            for (int i = 0; i < productIds.length; i++) {
+                productIds[i] = records.get(i).getId();
+            }
+            this.total = response.getTotal();
+            this.page = response.getPage();
+            this.size = response.getSize();
+            this.pages = response.getPages();
+            this.nextCursor = response.getNextCursor();
+            this.hasMore = response.getHasMore();
+            this.totalExact = response.getTotalExact();
+            this.facets = response.getFacets();
+            this.tags = tags;
+            this.versions = versions;
+        }
+
+        private boolean isCurrent(ProductListCache owner) {
+            for (int i = 0; i < tags.length; i++) {
+                if (owner.version(tags[i]).get() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ProductDTO.PageResponse<ProductDTO.ProductListResponse> toResponse(
+                Function<List<Long>, List<ProductDTO.ProductListResponse>> hydrator) {
+            List<Long> ids = new ArrayList<>(productIds.length);
+            for (long productId : productIds) {
+                ids.add(productId);
+            }
+            ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = new ProductDTO.PageResponse<>();
+            response.setRecords(ids.isEmpty() ? new ArrayList<>() : hydrator.apply(ids));
+            response.setTotal(total);
+            response.setPage(page);
+            response.setSize(size);
+            response.setPages(pages);
+            response.setNextCursor(nextCursor);
+            response.setHasMore(hasMore);
+            response.setTotalExact(totalExact);
+            response.setFacets(facets);
+            return response;
+        }
+    }
+
+    private static final class TagStats {
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+
+        private final LongAdder invalidations = new LongAdder();
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            snapshot.put("hits", hitCount);
+            snapshot.put("misses", missCount);
+            snapshot.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+            snapshot.put("invalidations", invalidations.sum());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ecommerce.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按 key 合并并发加载
+ * 同一 key 同一时刻只有一次加载在执行，期间的其它调用等待并共享其结果（包括异常），避免缓存失效时的惊群回源；
+ * loader 内不得再加载同一 key
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 在调用线程执行加载；已有同 key 加载在执行时等待其结果
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+        run(key, future, loader);
+        return join(future);
+    }
+
+    /**
+     * 在 executor 中执行加载，用于后台刷新；已有同 key 加载在执行时直接返回它
+     * executor 拒绝任务时返回异常完成的 future
+     */
+    public CompletableFuture<V> loadAsync(K key, Supplier<V> loader, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        try {
+            executor.execute(() -> run(key, future, loader));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("loads", loads.sum());
+        snapshot.put("coalesced", coalesced.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("inFlight", inFlight.size());
+        return snapshot;
+    }
+
+    private void run(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            return;
+        }
+        // 先移除再完成：完成之后到达的调用发起新的加载，不会拿到这次的结果
+        inFlight.remove(key, future);
+        future.complete(value);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
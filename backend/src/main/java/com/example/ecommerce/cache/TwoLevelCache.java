@@ -0,0 +1,364 @@
+package com.example.ecommerce.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存：进程内 L1 + Redis L2
+ * 缓存值在 L1 中共享同一实例，调用方不得修改返回对象
+ * <p>
+ * L2 条目记录逻辑过期时间和回源耗时，Redis 实际过期时间再延长 staleTtl：
+ * <ul>
+ *     <li>临近逻辑过期时按 XFetch 概率提前在后台刷新，回源耗时越长越早刷新</li>
+ *     <li>逻辑过期后的 staleTtl 内继续返回旧值并在后台刷新（stale-while-revalidate）</li>
+ *     <li>L1、L2 均未命中时同一 key 的并发请求合并为一次回源</li>
+ * </ul>
+ * 主动失效（evictRemote）直接删除条目，不会返回旧值
+ */
+@Slf4j
+public class TwoLevelCache<V> {
+
+    private final String keyPrefix;
+
+    private final Type valueType;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final LocalCache<String, V> localCache;
+
+    private final Duration ttl;
+
+    private final Duration ttlJitter;
+
+    private final Duration staleTtl;
+
+    private final double earlyRefreshBeta;
+
+    private final Executor refreshExecutor;
+
+    private final CacheStats remoteStats = new CacheStats();
+
+    private final SingleFlight<String, V> loads = new SingleFlight<>();
+
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    private final LongAdder staleHits = new LongAdder();
+
+    /**
+     * @param staleTtl         逻辑过期后仍可返回旧值的时长，为 0 时不返回过期值
+     * @param earlyRefreshBeta XFetch 系数，越大越早刷新，为 0 时不提前刷新
+     * @param refreshExecutor  后台刷新线程池
+     */
+    public TwoLevelCache(String keyPrefix, Type valueType, StringRedisTemplate redisTemplate,
+                         int localMaximumSize, Duration localTtl, Duration ttl, Duration ttlJitter,
+                         Duration staleTtl, double earlyRefreshBeta, Executor refreshExecutor) {
+        this.keyPrefix = keyPrefix;
+        this.valueType = valueType;
+        this.redisTemplate = redisTemplate;
+        this.localCache = new LocalCache<>(localMaximumSize, localTtl);
+        this.ttl = ttl;
+        this.ttlJitter = ttlJitter;
+        this.staleTtl = staleTtl;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 依次查询 L1、L2，均未命中时通过 loader 回源；loader 返回 null 时不缓存
+     */
+    public V get(String key, Supplier<V> loader) {
+        V value = localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        return loads.load(key, () -> loadThrough(key, loader));
+    }
+
+    /**
+     * 批量读取：L1 未命中的 key 用一次 MGET 查询 L2，仍未命中的交给 loader 一次性回源
+     *
+     * @param loader 批量回源函数，返回 key -> 值，不存在的 key 不放入结果
+     * @return key -> 值，不存在的 key 不放入结果
+     */
+    public Map<String, V> getAll(Collection<String> keys, Function<List<String>, Map<String, V>> loader) {
+        Map<String, V> result = new HashMap<>(keys.size() * 2);
+        List<String> remoteKeys = new ArrayList<>();
+        for (String key : keys) {
+            V value = localCache.getIfPresent(key);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+
+        List<String> missingKeys = getAllRemote(remoteKeys, result, loader);
+        if (missingKeys.isEmpty()) {
+            return result;
+        }
+
+        long start = System.nanoTime();
+        Map<String, V> loaded = loader.apply(missingKeys);
+        long elapsed = System.nanoTime() - start;
+        remoteStats.recordLoad(elapsed);
+
+        if (!loaded.isEmpty()) {
+            putAllRemote(loaded, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            loaded.forEach(localCache::put);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * 仅删除本节点 L1
+     */
+    public void evictLocal(String key) {
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 清空本节点 L1
+     */
+    public void evictLocalAll() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 删除 Redis 中的 L2 条目
+     */
+    public void evictRemote(String key) {
+        try {
+            redisTemplate.delete(keyPrefix + key);
+            remoteStats.recordEviction();
+        } catch (Exception e) {
+            remoteStats.recordError();
+            log.warn("删除缓存失败，key：{}，原因：{}", keyPrefix + key, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("l1", localCache.snapshot());
+        snapshot.put("l2", remoteStats.snapshot());
+        snapshot.put("loads", loads.snapshot());
+        snapshot.put("earlyRefreshes", earlyRefreshes.sum());
+        snapshot.put("staleHits", staleHits.sum());
+        return snapshot;
+    }
+
+    /**
+     * 合并加载内执行：再查一次 L1（可能刚由上一轮加载写入），再查 L2，最后回源
+     */
+    private V loadThrough(String key, Supplier<V> loader) {
+        V value = localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        RemoteEntry<V> entry = getRemote(key);
+        if (entry != null) {
+            localCache.put(key, entry.value);
+            refreshIfNeeded(key, entry, loader);
+            return entry.value;
+        }
+        return load(key, loader);
+    }
+
+    private V load(String key, Supplier<V> loader) {
+        long start = System.nanoTime();
+        V value = loader.get();
+        long elapsed = System.nanoTime() - start;
+        remoteStats.recordLoad(elapsed);
+
+        if (value != null) {
+            putRemote(key, value, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            localCache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 条目已逻辑过期，或按 XFetch 判定需要提前刷新时，提交后台刷新
+     * XFetch：now - delta * beta * ln(random) >= expireAt，其中 delta 为上次回源耗时
+     */
+    private void refreshIfNeeded(String key, RemoteEntry<V> entry, Supplier<V> loader) {
+        if (entry.expireAt <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.expireAt) {
+            staleHits.increment();
+        } else if (earlyRefreshBeta > 0
+                && now - entry.delta * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble()) >= entry.expireAt) {
+            earlyRefreshes.increment();
+        } else {
+            return;
+        }
+        loads.loadAsync(key, () -> refresh(key, loader), refreshExecutor).exceptionally(e -> {
+            log.warn("后台刷新缓存失败，key：{}，原因：{}", keyPrefix + key, e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * 后台刷新：数据已不存在时删除旧条目
+     */
+    private V refresh(String key, Supplier<V> loader) {
+        V value = load(key, loader);
+        if (value == null) {
+            evictRemote(key);
+            localCache.invalidate(key);
+        }
+        return value;
+    }
+
+    private RemoteEntry<V> getRemote(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(keyPrefix + key);
+            if (json != null) {
+                remoteStats.recordHit();
+                return decode(json);
+            }
+        } catch (Exception e) {
+            remoteStats.recordError();
+            log.warn("读取缓存失败，key：{}，原因：{}", keyPrefix + key, e.getMessage());
+        }
+        remoteStats.recordMiss();
+        return null;
+    }
+
+    /**
+     * MGET 批量读取 L2，命中的写入 result 和 L1，返回未命中的 key
+     */
+    private List<String> getAllRemote(List<String> keys, Map<String, V> result,
+                                      Function<List<String>, Map<String, V>> loader) {
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            redisKeys.add(keyPrefix + key);
+        }
+        List<String> jsons;
+        try {
+            jsons = redisTemplate.opsForValue().multiGet(redisKeys);
+        } catch (Exception e) {
+            remoteStats.recordError();
+            log.warn("批量读取缓存失败，key 数：{}，原因：{}", keys.size(), e.getMessage());
+            return keys;
+        }
+
+        List<String> missingKeys = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String json = jsons != null ? jsons.get(i) : null;
+            if (json == null) {
+                remoteStats.recordMiss();
+                missingKeys.add(keys.get(i));
+                continue;
+            }
+            remoteStats.recordHit();
+            String key = keys.get(i);
+            RemoteEntry<V> entry = decode(json);
+            result.put(key, entry.value);
+            localCache.put(key, entry.value);
+            refreshIfNeeded(key, entry, () -> loader.apply(Collections.singletonList(key)).get(key));
+        }
+        return missingKeys;
+    }
+
+    private void putRemote(String key, V value, long delta) {
+        long ttlMillis = expireMillis();
+        try {
+            redisTemplate.opsForValue().set(keyPrefix + key, encode(value, ttlMillis, delta),
+                    ttlMillis + staleTtl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            remoteStats.recordError();
+            log.warn("写入缓存失败，key：{}，原因：{}", keyPrefix + key, e.getMessage());
+        }
+    }
+
+    /**
+     * 用一次管道写入多个条目，每个条目单独计算过期时间
+     */
+    private void putAllRemote(Map<String, V> values, long delta) {
+        RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                values.forEach((key, value) -> {
+                    long ttlMillis = expireMillis();
+                    connection.stringCommands().set(
+                            serializer.serialize(keyPrefix + key), serializer.serialize(encode(value, ttlMillis, delta)),
+                            Expiration.milliseconds(ttlMillis + staleTtl.toMillis()), RedisStringCommands.SetOption.upsert());
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            remoteStats.recordError();
+            log.warn("批量写入缓存失败，key 数：{}，原因：{}", values.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * TTL 加随机抖动，避免大量热点同时过期
+     */
+    private long expireMillis() {
+        long jitterMillis = ttlJitter.toMillis() > 0 ? ThreadLocalRandom.current().nextLong(ttlJitter.toMillis()) : 0;
+        return ttl.toMillis() + jitterMillis;
+    }
+
+    /**
+     * L2 存储格式：{"e": 逻辑过期时间戳, "d": 回源耗时毫秒, "v": 缓存值}
+     */
+    private String encode(V value, long ttlMillis, long delta) {
+        return "{\"e\":" + (System.currentTimeMillis() + ttlMillis) + ",\"d\":" + delta +
+                ",\"v\":" + JSON.toJSONString(value) + "}";
+    }
+
+    /**
+     * 兼容不带过期信息的旧格式（按未过期处理）
+     */
+    private RemoteEntry<V> decode(String json) {
+        JSONObject object = JSON.parseObject(json);
+        if (object.containsKey("v") && object.containsKey("e")) {
+            return new RemoteEntry<>(object.getObject("v", valueType), object.getLongValue("e"), object.getLongValue("d"));
+        }
+        return new RemoteEntry<>(object.to(valueType), 0, 0);
+    }
+
+    private static final class RemoteEntry<V> {
+
+        private final V value;
+
+        private final long expireAt;
+
+        private final long delta;
+
+        private RemoteEntry(V value, long expireAt, long delta) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.delta = delta;
+        }
+    }
+}
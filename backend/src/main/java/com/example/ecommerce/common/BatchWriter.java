@@ -0,0 +1,219 @@
+package com.example.ecommerce.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 批量写入队列（组提交）
+ * <p>
+ * 请求进入有界队列后立即返回，写入线程从队列中按微批取出请求，整批交给一次写入（通常是一个事务）；
+ * 整批失败时逐个重试，单个请求仍失败时交给失败回调。停止时先把已入队的请求写完再退出。
+ *
+ * @param <T> 请求类型
+ * @param <R> 每个请求的写入结果（与请求一一对应，如订单ID）
+ */
+@Slf4j
+public class BatchWriter<T, R> {
+
+    private final String name;
+
+    private final int batchSize;
+
+    private final Duration linger;
+
+    private final Function<List<T>, List<R>> writer;
+
+    private final BiConsumer<T, R> onSuccess;
+
+    private final BiConsumer<T, Exception> onFailure;
+
+    private final BlockingQueue<Pending<T>> queue;
+
+    private final int queueCapacity;
+
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder commitNanos = new LongAdder();
+
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    private volatile boolean running;
+
+    /**
+     * @param name      名称，用于线程名和日志
+     * @param linger    取到第一个请求后继续等待凑批的最长时间，为 0 时只取已在队列中的请求
+     * @param writer    批量写入，按请求顺序返回结果，抛出异常表示整批失败
+     * @param onSuccess 写入成功后对每个请求的回调
+     * @param onFailure 请求逐个重试后仍失败时的回调
+     */
+    public BatchWriter(String name, int queueCapacity, int threads, int batchSize, Duration linger,
+                       Function<List<T>, List<R>> writer, BiConsumer<T, R> onSuccess,
+                       BiConsumer<T, Exception> onFailure) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.linger = linger;
+        this.writer = writer;
+        this.onSuccess = onSuccess;
+        this.onFailure = onFailure;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("{} 写入线程未能及时结束，剩余排队请求：{}", name, queue.size());
+        }
+    }
+
+    /**
+     * 请求入队
+     *
+     * @return 已停止或队列已满时返回 false
+     */
+    public boolean submit(T item) {
+        if (!running || !queue.offer(new Pending<>(item, System.nanoTime()))) {
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        long batchCount = batches.sum();
+        long writtenCount = written.sum();
+        stats.put("batches", batchCount);
+        stats.put("written", writtenCount);
+        stats.put("failed", failed.sum());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) writtenCount / batchCount : 0);
+        stats.put("avgCommitMillis", batchCount > 0 ? commitNanos.sum() / batchCount / 1_000_000.0 : 0);
+        stats.put("maxCommitMillis", maxCommitNanos.get() / 1_000_000.0);
+        stats.put("avgQueueWaitMillis", writtenCount > 0 ? queueWaitNanos.sum() / writtenCount / 1_000_000.0 : 0);
+        return stats;
+    }
+
+    private void drainLoop() {
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Pending<T> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("{} 写入异常：{}", name, e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        batch.forEach(pending -> items.add(pending.item));
+        List<R> results;
+        long start = System.nanoTime();
+        try {
+            results = writer.apply(items);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                failed.increment();
+                onFailure.accept(items.get(0), e);
+                return;
+            }
+            log.warn("{} 批量写入失败，逐个重试，批大小：{}，原因：{}", name, batch.size(), e.getMessage());
+            for (Pending<T> pending : batch) {
+                write(List.of(pending));
+            }
+            return;
+        }
+        long end = System.nanoTime();
+        batches.increment();
+        written.add(batch.size());
+        commitNanos.add(end - start);
+        maxCommitNanos.accumulateAndGet(end - start, Math::max);
+        for (int i = 0; i < batch.size(); i++) {
+            queueWaitNanos.add(start - batch.get(i).enqueuedAt);
+            onSuccess.accept(items.get(i), results.get(i));
+        }
+    }
+
+    private static class Pending<T> {
+
+        private final T item;
+
+        private final long enqueuedAt;
+
+        Pending(T item, long enqueuedAt) {
+            this.item = item;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ecommerce.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 死锁自动重试的事务模板
+ * 在独立事务中执行回调，遇到死锁或锁等待超时（事务已被数据库回滚）时按指数退避重新执行整个事务；
+ * 已处于外层事务中时直接加入外层事务且不重试，由最外层的调用负责重试
+ */
+@Slf4j
+@Component
+public class DeadlockRetryTemplate implements StatsProvider {
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    @Value("${app.transaction.deadlock-retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.transaction.deadlock-retry.initial-backoff:20ms}")
+    private Duration initialBackoff;
+
+    @Value("${app.transaction.deadlock-retry.max-backoff:200ms}")
+    private Duration maxBackoff;
+
+    public DeadlockRetryTemplate(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 在事务中执行，死锁时重试
+     *
+     * @param action 事务内的操作，重试时会被完整地再次调用，不能依赖上一次调用留下的状态
+     */
+    public <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        executions.increment();
+        long backoff = initialBackoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.error("事务死锁重试{}次后仍失败：{}", attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                // 随机抖动，避免冲突的事务同时重试再次死锁
+                long sleep = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+                log.warn("事务发生死锁，{}ms 后第{}次重试：{}", sleep, attempt, e.getMessage());
+                sleep(sleep);
+                backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+            }
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "deadlockRetry";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("retries", retries.sum());
+        stats.put("exhausted", exhausted.sum());
+        stats.put("maxAttempts", maxAttempts);
+        return stats;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("事务重试被中断", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.ecommerce.common;
+
+import com.example.ecommerce.dto.ProductDTO;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 商品列表游标（Keyset 分页）
+ * 记录上一页最后一行的排序键和ID，编码为不透明字符串返回给客户端
+ */
+@Getter
+public class ProductCursor {
+
+    private static final String VERSION = "v1";
+
+    private static final String SEPARATOR = "|";
+
+    private final String sortBy;
+
+    private final String sortOrder;
+
+    private final BigDecimal price;
+
+    private final Integer salesCount;
+
+    private final LocalDateTime createdAt;
+
+    private final Long id;
+
+    private ProductCursor(String sortBy, String sortOrder, BigDecimal price, Integer salesCount,
+                          LocalDateTime createdAt, Long id) {
+        this.sortBy = sortBy;
+        this.sortOrder = sortOrder;
+        this.price = price;
+        this.salesCount = salesCount;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 根据当前页最后一条记录生成游标
+     */
+    public static ProductCursor after(ProductDTO.ProductQuery query, ProductDTO.ProductListResponse last) {
+        return new ProductCursor(normalizeSortBy(query.getSortBy()), normalizeSortOrder(query.getSortOrder()),
+                last.getPrice(), last.getSalesCount(), last.getCreatedAt(), last.getId());
+    }
+
+    /**
+     * 解析客户端传入的游标，排序方式必须与本次查询一致
+     */
+    public static ProductCursor decode(String token, ProductDTO.ProductQuery query) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+        if (parts.length != 5 || !VERSION.equals(parts[0])) {
+            throw new RuntimeException("无效的分页游标");
+        }
+
+        String sortBy = normalizeSortBy(query.getSortBy());
+        String sortOrder = normalizeSortOrder(query.getSortOrder());
+        if (!sortBy.equals(parts[1]) || !sortOrder.equals(parts[2])) {
+            throw new RuntimeException("分页游标与排序方式不匹配");
+        }
+
+        try {
+            Long id = Long.valueOf(parts[4]);
+            switch (sortBy) {
+                case "price":
+                    return new ProductCursor(sortBy, sortOrder, new BigDecimal(parts[3]), null, null, id);
+                case "sales_count":
+                    return new ProductCursor(sortBy, sortOrder, null, Integer.valueOf(parts[3]), null, id);
+                default:
+                    return new ProductCursor(sortBy, sortOrder, null, null, LocalDateTime.parse(parts[3]), id);
+            }
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 编码为 URL 安全的字符串
+     */
+    public String encode() {
+        String value;
+        switch (sortBy) {
+            case "price":
+                value = price.toPlainString();
+                break;
+            case "sales_count":
+                value = String.valueOf(salesCount);
+                break;
+            default:
+                value = createdAt.toString();
+        }
+        String raw = VERSION + SEPARATOR + sortBy + SEPARATOR + sortOrder + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 与 ProductMapper 中的排序规则保持一致：未知字段按创建时间排序
+     */
+    private static String normalizeSortBy(String sortBy) {
+        if ("price".equals(sortBy) || "sales_count".equals(sortBy)) {
+            return sortBy;
+        }
+        return "created_at";
+    }
+
+    private static String normalizeSortOrder(String sortOrder) {
+        return "asc".equals(sortOrder) ? "asc" : "desc";
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.ecommerce.common;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花算法ID生成器（订单号）
+ * <p>
+ * ID 结构：41位毫秒时间戳（相对 2024-01-01）| 10位节点ID | 12位序号，同一节点内单调递增，不同节点间不重复，整体按时间有序。
+ * 时间戳和序号打包在一个 AtomicLong 中，用 CAS 推进，多线程并发生成时无锁。
+ * <p>
+ * 同一毫秒内序号用完时自旋等待下一毫秒，单节点上限约每秒409万个；系统时钟回拨时继续沿用上次的时间戳递增，
+ * 不会生成重复或倒序的ID，回拨超过 app.id-generator.max-clock-backward 时拒绝生成。
+ * 节点在时钟回拨期间重启仍可能与回拨前生成的ID重复，部署时应保证时钟同步只做平滑调整。
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator implements StatsProvider {
+
+    /**
+     * 2024-01-01T00:00:00Z
+     */
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    /**
+     * 十进制最长19位，定长补零使订单号的字典序与生成顺序一致
+     */
+    private static final int DECIMAL_LENGTH = 19;
+
+    /**
+     * 高位为上次生成使用的时间戳、低位为序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private final LongAdder generated = new LongAdder();
+
+    private final LongAdder clockBackward = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 当前时间（毫秒），测试时可替换为可控的时钟
+     */
+    private final LongSupplier clock;
+
+    @Value("${app.id-generator.node-id:0}")
+    private long nodeId;
+
+    @Value("${app.id-generator.max-clock-backward:1s}")
+    private Duration maxClockBackward;
+
+    public SnowflakeIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.id-generator.node-id 必须在0到" + MAX_NODE_ID + "之间");
+        }
+        log.info("ID生成器已初始化，节点ID：{}", nodeId);
+    }
+
+    /**
+     * 生成下一个ID
+     */
+    public long nextId() {
+        for (;;) {
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // 同一毫秒或时钟回拨：沿用上次的时间戳，序号递增
+                long backward = lastTimestamp - now;
+                if (backward > maxClockBackward.toMillis()) {
+                    rejected.increment();
+                    throw new RuntimeException("系统时钟回拨" + backward + "ms，暂停生成订单号");
+                }
+                next = current + 1;
+                if (next >>> SEQUENCE_BITS != lastTimestamp) {
+                    // 本毫秒序号已用完，等待时钟进入下一毫秒
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+            if (state.compareAndSet(current, next)) {
+                if (now < lastTimestamp) {
+                    clockBackward.increment();
+                }
+                generated.increment();
+                return compose(next);
+            }
+        }
+    }
+
+    /**
+     * 生成订单号：前缀 + 定长十进制ID
+     */
+    public String nextOrderNumber(String prefix) {
+        String id = Long.toString(nextId());
+        StringBuilder builder = new StringBuilder(prefix.length() + DECIMAL_LENGTH).append(prefix);
+        for (int i = id.length(); i < DECIMAL_LENGTH; i++) {
+            builder.append('0');
+        }
+        return builder.append(id).toString();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "idGenerator";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("generated", generated.sum());
+        stats.put("clockBackward", clockBackward.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    private long compose(long timestampAndSequence) {
+        long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+        long sequence = timestampAndSequence & ((1L << SEQUENCE_BITS) - 1);
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeId << SEQUENCE_BITS | sequence;
+    }
+}
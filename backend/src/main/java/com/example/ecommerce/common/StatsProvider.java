@@ -0,0 +1,20 @@
+package com.example.ecommerce.common;
+
+import java.util.Map;
+
+/**
+ * 运行指标提供者
+ * 实现该接口的组件会被 MonitorController 统一汇总输出
+ */
+public interface StatsProvider {
+
+    /**
+     * 指标分组名称
+     */
+    String getStatsName();
+
+    /**
+     * 当前指标快照
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,113 @@
+package com.example.ecommerce.common;
+
+import com.example.ecommerce.dto.TicketDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 排队凭证存储
+ * <p>
+ * 凭证状态保存在 Redis 哈希中（用户ID、状态、订单ID、失败原因），客户端可在任意节点轮询，只能读取自己的凭证。
+ * 写入线程更新状态失败时只记录日志，凭证到期后客户端按不存在处理。
+ */
+@Slf4j
+public class TicketStore {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String keyPrefix;
+
+    private final Duration ttl;
+
+    public TicketStore(StringRedisTemplate redisTemplate, String keyPrefix, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 保存排队状态后提交请求。先保存再提交，避免写入线程先完成的结果被排队状态覆盖
+     *
+     * @param submit 提交请求，返回 false 表示被拒绝（如队列已满）
+     * @return 排队凭证，提交被拒绝时删除凭证并返回 null
+     */
+    public TicketDTO.TicketResponse enqueue(Long userId, String ticketId, BooleanSupplier submit) {
+        TicketDTO.TicketResponse ticket = new TicketDTO.TicketResponse();
+        ticket.setTicketId(ticketId);
+        ticket.setStatus(TicketDTO.TicketStatus.QUEUED);
+        save(userId, ticket);
+        if (!submit.getAsBoolean()) {
+            redisTemplate.delete(keyPrefix + ticketId);
+            return null;
+        }
+        return ticket;
+    }
+
+    /**
+     * 标记订单已创建
+     */
+    public void succeed(Long userId, String ticketId, Long orderId) {
+        TicketDTO.TicketResponse ticket = new TicketDTO.TicketResponse();
+        ticket.setTicketId(ticketId);
+        ticket.setStatus(TicketDTO.TicketStatus.SUCCESS);
+        ticket.setOrderId(orderId);
+        saveQuietly(userId, ticket);
+    }
+
+    /**
+     * 标记下单失败
+     */
+    public void fail(Long userId, String ticketId, String message) {
+        TicketDTO.TicketResponse ticket = new TicketDTO.TicketResponse();
+        ticket.setTicketId(ticketId);
+        ticket.setStatus(TicketDTO.TicketStatus.FAILED);
+        ticket.setMessage(message);
+        saveQuietly(userId, ticket);
+    }
+
+    /**
+     * 读取凭证，不存在（已过期）或不属于该用户时返回 null
+     */
+    public TicketDTO.TicketResponse get(Long userId, String ticketId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(keyPrefix + ticketId);
+        if (fields.isEmpty() || !String.valueOf(userId).equals(fields.get("userId"))) {
+            return null;
+        }
+        TicketDTO.TicketResponse ticket = new TicketDTO.TicketResponse();
+        ticket.setTicketId(ticketId);
+        ticket.setStatus(TicketDTO.TicketStatus.valueOf((String) fields.get("status")));
+        if (fields.get("orderId") != null) {
+            ticket.setOrderId(Long.valueOf((String) fields.get("orderId")));
+        }
+        ticket.setMessage((String) fields.get("message"));
+        return ticket;
+    }
+
+    private void saveQuietly(Long userId, TicketDTO.TicketResponse ticket) {
+        try {
+            save(userId, ticket);
+        } catch (Exception e) {
+            log.error("排队凭证状态保存失败，凭证：{}，原因：{}", ticket.getTicketId(), e.getMessage());
+        }
+    }
+
+    private void save(Long userId, TicketDTO.TicketResponse ticket) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", String.valueOf(userId));
+        fields.put("status", ticket.getStatus().name());
+        if (ticket.getOrderId() != null) {
+            fields.put("orderId", String.valueOf(ticket.getOrderId()));
+        }
+        if (ticket.getMessage() != null) {
+            fields.put("message", ticket.getMessage());
+        }
+        String key = keyPrefix + ticket.getTicketId();
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, ttl);
+    }
+}
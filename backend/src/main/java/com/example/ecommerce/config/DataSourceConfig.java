@@ -0,0 +1,70 @@
+package com.example.ecommerce.config;
+
+import com.example.ecommerce.datasource.ReadWriteRoutingDataSource;
+import com.example.ecommerce.datasource.ReadWriteRoutingInterceptor;
+import com.example.ecommerce.datasource.ReadWriteSplittingProperties;
+import com.example.ecommerce.datasource.ReplicaPinFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ * 默认关闭，使用 spring.datasource 单一主库；开启后主库沿用 spring.datasource，
+ * 从库在 app.datasource.read-write-splitting.replicas 中配置
+ */
+@Configuration
+@EnableConfigurationProperties(ReadWriteSplittingProperties.class)
+@ConditionalOnProperty(prefix = "app.datasource.read-write-splitting", name = "enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties dataSourceProperties,
+                                                       ReadWriteSplittingProperties properties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReadWriteSplittingProperties.Replica replica = properties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (i + 1));
+            dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.add(dataSource);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas, properties);
+    }
+
+    /**
+     * 应用使用的数据源：延迟获取物理连接，使路由时能读到事务的只读标记
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReadWriteRoutingInterceptor readWriteRoutingInterceptor() {
+        return new ReadWriteRoutingInterceptor();
+    }
+
+    @Bean
+    public ReplicaPinFilter replicaPinFilter() {
+        return new ReplicaPinFilter();
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.ecommerce.config;
 
+import com.example.ecommerce.web.ConditionalGetInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
@@ -8,6 +11,19 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * CORS 配置已移至 SecurityConfig 中以避免冲突
  */
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
-    // CORS 配置已移至 SecurityConfig 中
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    /**
+     * 商品、分类的公开查询接口支持条件请求（ETag / Last-Modified）
+     * 分类树接口自带版本号 ETag，管理接口不参与
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor)
+                .addPathPatterns("/products/**", "/categories/**")
+                .excludePathPatterns("/products/admin/**", "/categories/admin/**", "/categories/tree");
+    }
 }
@@ -1,6 +1,9 @@
 package com.example.ecommerce.controller;
 
+import com.example.ecommerce.cache.CategoryTree;
+import com.example.ecommerce.cache.CategoryTreeCache;
 import com.example.ecommerce.common.Result;
+import com.example.ecommerce.dto.CategoryDTO;
 import com.example.ecommerce.entity.Category;
 import com.example.ecommerce.mapper.CategoryMapper;
 import jakarta.validation.Valid;
@@ -10,8 +13,13 @@ import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -26,6 +34,28 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryMapper categoryMapper;
+    private final CategoryTreeCache categoryTreeCache;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 获取完整分类树
+     * 以分类树版本作为 ETag，客户端携带 If-None-Match 且版本未变时返回 304
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<Result<CategoryDTO.TreeResponse>> getCategoryTree(WebRequest webRequest) {
+        log.info("获取分类树请求");
+        try {
+            CategoryTree tree = categoryTreeCache.current();
+            String etag = "\"" + tree.getVersion() + "\"";
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+            }
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(Result.success(tree.getTree()));
+        } catch (Exception e) {
+            log.error("获取分类树失败: {}", e.getMessage());
+            return ResponseEntity.ok(Result.error(e.getMessage()));
+        }
+    }
 
     /**
      * 获取顶级分类
@@ -34,7 +64,7 @@ public class CategoryController {
     public Result<List<Category>> getTopCategories() {
         log.info("获取顶级分类请求");
         try {
-            List<Category> categories = categoryMapper.findTopCategories();
+            List<Category> categories = categoryTreeCache.current().getTopCategories();
             return Result.success(categories);
         } catch (Exception e) {
             log.error("获取顶级分类失败: {}", e.getMessage());
@@ -49,7 +79,7 @@ public class CategoryController {
     public Result<List<Category>> getSubCategories(@PathVariable Long parentId) {
         log.info("获取子分类请求 - 父分类ID: {}", parentId);
         try {
-            List<Category> categories = categoryMapper.findByParentId(parentId);
+            List<Category> categories = categoryTreeCache.current().getChildren(parentId);
             return Result.success(categories);
         } catch (Exception e) {
             log.error("获取子分类失败: {}", e.getMessage());
@@ -64,7 +94,7 @@ public class CategoryController {
     public Result<Category> getCategoryById(@PathVariable Long id) {
         log.info("获取分类详情请求 - ID: {}", id);
         try {
-            Category category = categoryMapper.selectById(id);
+            Category category = categoryTreeCache.current().getCategory(id);
             if (category == null) {
                 return Result.error(404, "分类不存在");
             }
@@ -105,10 +135,18 @@ public class CategoryController {
                     .setSortOrder(request.getSortOrder())
                     .setStatus(1);
 
-            int result = categoryMapper.insert(category);
-            if (result <= 0) {
+            // 分类与闭包记录在同一事务中写入
+            Integer result = transactionTemplate.execute(status -> {
+                int inserted = categoryMapper.insert(category);
+                if (inserted > 0) {
+                    categoryMapper.insertClosure(category.getId(), category.getParentId());
+                }
+                return inserted;
+            });
+            if (result == null || result <= 0) {
                 return Result.error("分类创建失败");
             }
+            categoryTreeCache.refresh();
 
             return Result.success(category.getId(), "分类创建成功");
         } catch (Exception e) {
@@ -150,8 +188,9 @@ public class CategoryController {
                 if (request.getParentId().equals(id)) {
                     return Result.error("不能将分类的父分类设置为其自身");
                 }
-                
-                // TODO: 递归检查不能设置为子分类（此处简化处理）
+                if (categoryMapper.isDescendant(id, request.getParentId()) > 0) {
+                    return Result.error("不能将分类的父分类设置为其子分类");
+                }
             }
 
             // 更新分类
@@ -163,10 +202,20 @@ public class CategoryController {
                     .setSortOrder(request.getSortOrder())
                     .setStatus(request.getStatus());
 
-            int result = categoryMapper.updateById(category);
-            if (result <= 0) {
+            // 父分类变化时在同一事务中移动闭包中的整棵子树
+            boolean parentChanged = !request.getParentId().equals(existingCategory.getParentId());
+            Integer result = transactionTemplate.execute(status -> {
+                int updated = categoryMapper.updateById(category);
+                if (updated > 0 && parentChanged) {
+                    categoryMapper.detachSubtree(id);
+                    categoryMapper.attachSubtree(id, request.getParentId());
+                }
+                return updated;
+            });
+            if (result == null || result <= 0) {
                 return Result.error("分类更新失败");
             }
+            categoryTreeCache.refresh();
 
             return Result.success(null, "分类更新成功");
         } catch (Exception e) {
@@ -198,10 +247,17 @@ public class CategoryController {
             // TODO: 检查分类下是否有商品，如果有则不能删除
 
             // 删除分类
-            int result = categoryMapper.deleteById(id);
-            if (result <= 0) {
+            Integer result = transactionTemplate.execute(status -> {
+                int deleted = categoryMapper.deleteById(id);
+                if (deleted > 0) {
+                    categoryMapper.deleteClosure(id);
+                }
+                return deleted;
+            });
+            if (result == null || result <= 0) {
                 return Result.error("分类删除失败");
             }
+            categoryTreeCache.refresh();
 
             return Result.success(null, "分类删除成功");
         } catch (Exception e) {
@@ -0,0 +1,91 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.dto.FlashSaleDTO;
+import com.example.ecommerce.dto.TicketDTO;
+import com.example.ecommerce.service.FlashSaleService;
+import com.example.ecommerce.utils.SecurityUtils;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/flash-sales")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * 管理员接口：创建秒杀活动
+     */
+    @PostMapping("/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Long> createSale(@Valid @RequestBody FlashSaleDTO.CreateRequest request) {
+        log.info("创建秒杀活动请求: {}", request);
+        try {
+            Long saleId = flashSaleService.createSale(request);
+            return Result.success(saleId, "秒杀活动创建成功");
+        } catch (Exception e) {
+            log.error("创建秒杀活动失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员接口：关闭秒杀活动
+     */
+    @PostMapping("/admin/{id}/close")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<String> closeSale(@PathVariable Long id) {
+        log.info("关闭秒杀活动请求 - ID: {}", id);
+        try {
+            flashSaleService.closeSale(id);
+            return Result.success("秒杀活动已关闭");
+        } catch (Exception e) {
+            log.error("关闭秒杀活动失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public Result<FlashSaleDTO.SaleResponse> getSale(@PathVariable Long id) {
+        try {
+            return Result.success(flashSaleService.getSale(id));
+        } catch (Exception e) {
+            log.error("获取秒杀活动失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 抢购：取得名额后立即返回排队凭证，通过 /tickets/{ticketId} 查询订单创建结果
+     */
+    @PostMapping("/{id}/purchase")
+    public Result<TicketDTO.TicketResponse> purchase(@PathVariable Long id,
+                                                         @Valid @RequestBody FlashSaleDTO.PurchaseRequest request) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return Result.success(flashSaleService.purchase(userId, id, request), "排队中");
+        } catch (Exception e) {
+            // 售罄、限购等拒绝是高频的正常结果，不按错误记录
+            log.debug("秒杀抢购未成功 - 活动ID: {}, 原因: {}", id, e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public Result<TicketDTO.TicketResponse> getTicket(@PathVariable String ticketId) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return Result.success(flashSaleService.getTicket(userId, ticketId));
+        } catch (Exception e) {
+            log.error("查询排队凭证失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+}
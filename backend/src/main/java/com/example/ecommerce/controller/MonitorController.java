@@ -0,0 +1,56 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.common.StatsProvider;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行指标控制器
+ */
+@RestController
+@RequestMapping("/monitor")
+@RequiredArgsConstructor
+@Slf4j
+public class MonitorController {
+
+    private final List<StatsProvider> statsProviders;
+
+    /**
+     * 管理员接口：获取全部运行指标
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Map<String, Object>>> getStats() {
+        try {
+            Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+            for (StatsProvider provider : statsProviders) {
+                stats.put(provider.getStatsName(), provider.getStats());
+            }
+            return Result.success(stats);
+        } catch (Exception e) {
+            log.error("获取运行指标失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员接口：获取指定分组的运行指标
+     */
+    @GetMapping("/stats/{name}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getStats(@PathVariable String name) {
+        for (StatsProvider provider : statsProviders) {
+            if (provider.getStatsName().equals(name)) {
+                return Result.success(provider.getStats());
+            }
+        }
+        return Result.error(404, "指标分组不存在");
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.dto.OrderDTO;
+import com.example.ecommerce.dto.TicketDTO;
+import com.example.ecommerce.order.OrderIntakeQueue;
+import com.example.ecommerce.service.OrderService;
+import com.example.ecommerce.utils.SecurityUtils;
+import com.example.ecommerce.web.IdempotencyGuard;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/orders")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class OrderController {
+
+    private final OrderService orderService;
+
+    private final OrderIntakeQueue orderIntakeQueue;
+
+    private final IdempotencyGuard idempotencyGuard;
+
+    /**
+     * 下单，携带 Idempotency-Key 时重复请求返回首次的结果
+     */
+    @PostMapping
+    public Result<Long> createOrder(@Valid @RequestBody OrderDTO.CreateOrderRequest request,
+                                    @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return idempotencyGuard.execute("createOrder", userId, idempotencyKey, Long.class,
+                    () -> Result.success(orderService.createOrder(userId, request), "订单创建成功"));
+        } catch (Exception e) {
+            log.error("创建订单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 异步下单：受理后立即返回下单凭证，通过 /tickets/{ticketId} 查询订单创建结果
+     */
+    @PostMapping("/async")
+    public Result<TicketDTO.TicketResponse> submitOrder(@Valid @RequestBody OrderDTO.CreateOrderRequest request,
+                                                       @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return idempotencyGuard.execute("submitOrder", userId, idempotencyKey, TicketDTO.TicketResponse.class,
+                    () -> Result.success(orderIntakeQueue.submit(userId, request), "订单已受理"));
+        } catch (Exception e) {
+            log.error("异步下单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}/cancel")
+    public Result<Void> cancelOrder(@PathVariable Long id,
+                                    @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return idempotencyGuard.execute("cancelOrder:" + id, userId, idempotencyKey, Void.class, () -> {
+                orderService.cancelOrder(id, userId);
+                return Result.success(null, "订单已取消");
+            });
+        } catch (Exception e) {
+            log.error("取消订单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}/confirm")
+    public Result<Void> confirmOrder(@PathVariable Long id,
+                                     @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return idempotencyGuard.execute("confirmOrder:" + id, userId, idempotencyKey, Void.class, () -> {
+                orderService.confirmOrder(id, userId);
+                return Result.success(null, "已确认收货");
+            });
+        } catch (Exception e) {
+            log.error("确认收货失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员接口：更新订单状态（幂等键按操作的管理员区分）
+     */
+    @PatchMapping("/admin/{id}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> updateOrderStatus(@PathVariable Long id, @Valid @RequestBody OrderDTO.UpdateOrderStatusRequest request,
+                                          @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
+        log.info("更新订单状态请求 - ID: {}, 状态: {}", id, request.getStatus());
+        try {
+            Long adminId = SecurityUtils.currentUserId();
+            return idempotencyGuard.execute("updateOrderStatus:" + id, adminId, idempotencyKey, Void.class, () -> {
+                orderService.updateOrderStatus(id, request);
+                return Result.success(null, "订单状态更新成功");
+            });
+        } catch (Exception e) {
+            log.error("更新订单状态失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public Result<TicketDTO.TicketResponse> getTicket(@PathVariable String ticketId) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return Result.success(orderIntakeQueue.getTicket(userId, ticketId));
+        } catch (Exception e) {
+            log.error("查询下单凭证失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public Result<OrderDTO.OrderResponse> getOrderDetail(@PathVariable Long id) {
+        try {
+            Long userId = SecurityUtils.currentUserId();
+            return Result.success(orderService.getOrderDetail(id, userId));
+        } catch (Exception e) {
+            log.error("获取订单详情失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+}
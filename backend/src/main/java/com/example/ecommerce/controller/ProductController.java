@@ -3,12 +3,19 @@ package com.example.ecommerce.controller;
 import com.example.ecommerce.common.Result;
 import com.example.ecommerce.dto.ProductDTO;
 import com.example.ecommerce.service.ProductService;
+import com.example.ecommerce.web.ResponseBodyCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
 @RestController
 @RequestMapping("/products")
 @RequiredArgsConstructor
@@ -18,21 +25,43 @@ public class ProductController {
 
     private final ProductService productService;
 
+    private final ResponseBodyCache responseBodyCache;
+
     @GetMapping
     public Result<ProductDTO.PageResponse<ProductDTO.ProductListResponse>> getProducts(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(required = false) Long categoryId,
-            @RequestParam(required = false) String name) {
+            @RequestParam(defaultValue = "true") boolean includeDescendants,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "created_at") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String countMode,
+            @RequestParam(required = false) String searchMode,
+            @RequestParam(defaultValue = "false") boolean facets) {
         
-        log.info("获取商品列表请求 - 页码: {}, 大小: {}, 分类: {}", page, size, categoryId);
+        log.info("获取商品列表请求 - 页码: {}, 大小: {}, 分类: {}, 排序: {} {}, 游标: {}, 搜索方式: {}", page, size, categoryId, sortBy, sortOrder, cursor, searchMode);
         
         try {
             ProductDTO.ProductQuery query = new ProductDTO.ProductQuery();
             query.setPage(page);
             query.setSize(size);
             query.setCategoryId(categoryId);
+            query.setIncludeDescendants(includeDescendants);
             query.setName(name);
+            query.setBrand(brand);
+            query.setMinPrice(minPrice);
+            query.setMaxPrice(maxPrice);
+            query.setSortBy(sortBy);
+            query.setSortOrder(sortOrder);
+            query.setCursor(cursor);
+            query.setCountMode(ProductDTO.CountMode.of(countMode));
+            query.setSearchMode(ProductDTO.SearchMode.of(searchMode));
+            query.setFacets(facets);
             
             ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = productService.getProductList(query);
             return Result.success(response);
@@ -42,35 +71,59 @@ public class ProductController {
         }
     }
 
-    @GetMapping("/{id}")
-    public Result<ProductDTO.ProductResponse> getProductById(@PathVariable Long id) {
-        log.info("获取商品详情请求 - ID: {}", id);
+    @GetMapping("/batch")
+    public Result<List<ProductDTO.ProductResponse>> getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("批量获取商品详情请求 - 数量: {}", ids.size());
         try {
-            ProductDTO.ProductResponse response = productService.getProductDetail(id);
+            List<ProductDTO.ProductResponse> response = productService.getProductDetails(ids);
             return Result.success(response);
         } catch (Exception e) {
-            log.error("获取商品详情失败: {}", e.getMessage());
-            return Result.error(404, "商品不存在");
+            log.error("批量获取商品详情失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 商品详情：响应字节缓存命中时直接写出
+     */
+    @GetMapping("/{id}")
+    public void getProductById(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("获取商品详情请求 - ID: {}", id);
+        ResponseBodyCache.CachedBody body = responseBodyCache.getDetail(id);
+        if (body == null) {
+            long generation = responseBodyCache.generation();
+            try {
+                body = responseBodyCache.putDetail(id, productService.getProductDetail(id), generation);
+            } catch (Exception e) {
+                log.error("获取商品详情失败: {}", e.getMessage());
+                responseBodyCache.writeResult(Result.error(404, "商品不存在"), response);
+                return;
+            }
         }
+        responseBodyCache.write(body, request, response);
     }
 
+    /**
+     * 热销商品：响应字节缓存命中时直接写出
+     */
     @GetMapping("/featured")
-    public Result<ProductDTO.PageResponse<ProductDTO.ProductListResponse>> getFeaturedProducts(
-            @RequestParam(defaultValue = "8") int limit) {
-        log.info("获取热销商品请求 - 限制数量: {}", limit);
-        try {
-            ProductDTO.ProductQuery query = new ProductDTO.ProductQuery();
-            query.setPage(1);
-            query.setSize(limit);
-            query.setSortBy("sales_count");
-            query.setSortOrder("desc");
-            
-            ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = productService.getProductList(query);
-            return Result.success(response);
-        } catch (Exception e) {
-            log.error("获取热销商品失败: {}", e.getMessage());
-            return Result.error(e.getMessage());
+    public void getFeaturedProducts(
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(required = false) Long categoryId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("获取热销商品请求 - 限制数量: {}, 分类: {}", limit, categoryId);
+        ResponseBodyCache.CachedBody body = responseBodyCache.getFeatured(categoryId, limit);
+        if (body == null) {
+            long generation = responseBodyCache.generation();
+            try {
+                body = responseBodyCache.putFeatured(categoryId, limit, productService.getFeaturedProducts(categoryId, limit), generation);
+            } catch (Exception e) {
+                log.error("获取热销商品失败: {}", e.getMessage());
+                responseBodyCache.writeResult(Result.error(e.getMessage()), response);
+                return;
+            }
         }
+        responseBodyCache.write(body, request, response);
     }
     
     /**
@@ -105,6 +158,22 @@ public class ProductController {
         }
     }
     
+    /**
+     * 管理员接口：更新商品图片列表
+     */
+    @PutMapping("/admin/{id}/images")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> updateProductImages(@PathVariable Long id, @RequestBody List<String> imageUrls) {
+        log.info("更新商品图片请求 - ID: {}, 图片数量: {}", id, imageUrls.size());
+        try {
+            productService.updateProductImages(id, imageUrls);
+            return Result.success(null, "商品图片更新成功");
+        } catch (Exception e) {
+            log.error("更新商品图片失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
     /**
      * 管理员接口：删除商品
      */
@@ -121,6 +190,22 @@ public class ProductController {
         }
     }
     
+    /**
+     * 管理员接口：设置热点商品库存分桶数（0 表示取消分桶）
+     */
+    @PutMapping("/admin/{id}/stock-buckets")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> updateStockBuckets(@PathVariable Long id, @RequestParam Integer buckets) {
+        log.info("设置商品库存分桶请求 - ID: {}, 分桶数: {}", id, buckets);
+        try {
+            productService.updateStockBuckets(id, buckets);
+            return Result.success(null, "商品库存分桶设置成功");
+        } catch (Exception e) {
+            log.error("设置商品库存分桶失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
     /**
      * 管理员接口：更新商品状态（上架/下架）
      */
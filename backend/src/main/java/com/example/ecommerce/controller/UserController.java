@@ -3,6 +3,7 @@ package com.example.ecommerce.controller;
 import com.example.ecommerce.common.Result;
 import com.example.ecommerce.dto.UserDTO.*;
 import com.example.ecommerce.service.UserService;
+import com.example.ecommerce.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
@@ -45,8 +46,7 @@ public class UserController {
     @GetMapping("/profile")
     public Result<UserResponse> getCurrentUser() {
         try {
-            // TODO: 从JWT token中获取用户ID
-            Long userId = 1L; // 临时实现
+            Long userId = SecurityUtils.currentUserId();
             UserResponse response = userService.getUserById(userId);
             return Result.success(response);
         } catch (Exception e) {
@@ -58,7 +58,7 @@ public class UserController {
     @PutMapping("/profile")
     public Result<UserResponse> updateProfile(@Valid @RequestBody UpdateRequest request) {
         try {
-            Long userId = 1L; // 临时实现
+            Long userId = SecurityUtils.currentUserId();
             UserResponse response = userService.updateUser(userId, request);
             return Result.success(response, "更新成功");
         } catch (Exception e) {
@@ -0,0 +1,253 @@
+package com.example.ecommerce.datasource;
+
+import com.example.ecommerce.common.StatsProvider;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离路由数据源
+ * <ul>
+ *     <li>读写事务、未标记为查询的非事务语句走主库</li>
+ *     <li>只读事务和非事务查询按轮询或最少活跃连接选择健康的从库</li>
+ *     <li>写后固定期内、{@link RoutingContext#primary} 内的读取走主库</li>
+ *     <li>定期检查从库复制延迟，超过阈值或复制中断的从库暂停使用；没有可用从库时回退主库</li>
+ * </ul>
+ * 须包在 LazyConnectionDataSourceProxy 内使用：事务开始时只读标记尚未设置，延迟到第一条语句再取物理连接
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements StatsProvider, AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+
+    private final List<Target> replicas = new ArrayList<>();
+
+    private final boolean leastConnections;
+
+    private final long maxLagSeconds;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder pinnedReads = new LongAdder();
+
+    private final LongAdder fallbackReads = new LongAdder();
+
+    private final Map<String, LongAdder> routed = new HashMap<>();
+
+    private final ScheduledExecutorService lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-lag-checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                      ReadWriteSplittingProperties properties) {
+        this.primary = primary;
+        this.leastConnections = "least-connections".equalsIgnoreCase(properties.getBalance());
+        this.maxLagSeconds = properties.getMaxReplicaLag().getSeconds();
+        RoutingContext.configure(properties.getPinAfterWrite().toMillis(), properties.getPinCookie());
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routed.put(PRIMARY, new LongAdder());
+        for (HikariDataSource replica : replicas) {
+            Target target = new Target(replica.getPoolName(), replica);
+            this.replicas.add(target);
+            targets.put(target.name, replica);
+            routed.put(target.name, new LongAdder());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        if (!replicas.isEmpty()) {
+            lagChecker.scheduleWithFixedDelay(this::checkLag, 0, properties.getLagCheckInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = route();
+        routed.get(key).increment();
+        return key;
+    }
+
+    private String route() {
+        if (replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return PRIMARY;
+            }
+        } else if (!RoutingContext.isReadStatement()) {
+            return PRIMARY;
+        }
+        if (RoutingContext.isPrimaryRequired()) {
+            pinnedReads.increment();
+            return PRIMARY;
+        }
+        Target replica = leastConnections ? leastConnected() : roundRobin();
+        if (replica == null) {
+            fallbackReads.increment();
+            return PRIMARY;
+        }
+        return replica.name;
+    }
+
+    private Target roundRobin() {
+        int size = replicas.size();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Target target = replicas.get((start + i) % size);
+            if (target.healthy) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private Target leastConnected() {
+        Target best = null;
+        int bestActive = Integer.MAX_VALUE;
+        for (Target target : replicas) {
+            if (target.healthy) {
+                int active = target.activeConnections();
+                if (active < bestActive) {
+                    best = target;
+                    bestActive = active;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 读取从库复制延迟：Seconds_Behind_Source 为空表示复制中断；
+     * 没有复制状态（未配置复制的本地替身库）按无延迟处理
+     */
+    private void checkLag() {
+        for (Target target : replicas) {
+            try (Connection connection = target.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                Long lag = readLag(statement);
+                boolean healthy = lag != null && lag <= maxLagSeconds;
+                if (healthy != target.healthy) {
+                    log.warn("从库 {} {}，复制延迟：{}s", target.name, healthy ? "恢复使用" : "暂停使用", lag);
+                }
+                target.lagSeconds = lag;
+                target.healthy = healthy;
+            } catch (Exception e) {
+                if (target.healthy) {
+                    log.warn("从库 {} 暂停使用，原因：{}", target.name, e.getMessage());
+                }
+                target.lagSeconds = null;
+                target.healthy = false;
+            }
+        }
+    }
+
+    private static Long readLag(Statement statement) throws SQLException {
+        ResultSet resultSet;
+        String column;
+        try {
+            resultSet = statement.executeQuery("SHOW REPLICA STATUS");
+            column = "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            // MySQL 8.0.22 之前的版本
+            resultSet = statement.executeQuery("SHOW SLAVE STATUS");
+            column = "Seconds_Behind_Master";
+        }
+        try (ResultSet rs = resultSet) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "dataSourceRouting";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("balance", leastConnections ? "least-connections" : "round-robin");
+        stats.put("pinnedReads", pinnedReads.sum());
+        stats.put("fallbackReads", fallbackReads.sum());
+        Map<String, Object> primaryStats = poolStats(primary);
+        primaryStats.put("routed", routed.get(PRIMARY).sum());
+        stats.put(PRIMARY, primaryStats);
+        for (Target target : replicas) {
+            Map<String, Object> replicaStats = poolStats(target.dataSource);
+            replicaStats.put("routed", routed.get(target.name).sum());
+            replicaStats.put("healthy", target.healthy);
+            replicaStats.put("lagSeconds", target.lagSeconds);
+            stats.put(target.name, replicaStats);
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        for (Target target : replicas) {
+            target.dataSource.close();
+        }
+        primary.close();
+    }
+
+    private static Map<String, Object> poolStats(HikariDataSource dataSource) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("awaiting", pool.getThreadsAwaitingConnection());
+        }
+        stats.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+        return stats;
+    }
+
+    private static final class Target {
+
+        private final String name;
+
+        private final HikariDataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private volatile Long lagSeconds;
+
+        private Target(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool != null ? pool.getActiveConnections() : 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.ecommerce.datasource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * MyBatis 拦截器：标记语句的读写类型
+ * 非事务的 SELECT 标记为只读供路由数据源选择从库；INSERT/UPDATE/DELETE 记录写入，触发写后固定主库
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class ReadWriteRoutingInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        boolean read = statement.getSqlCommandType() == SqlCommandType.SELECT;
+        if (!read) {
+            RoutingContext.markWrite();
+        }
+        boolean previous = RoutingContext.markStatement(read);
+        try {
+            return invocation.proceed();
+        } finally {
+            RoutingContext.markStatement(previous);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecommerce.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置（app.datasource.read-write-splitting）
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.read-write-splitting")
+public class ReadWriteSplittingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * 从库选择方式：round-robin 轮询，least-connections 活跃连接最少
+     */
+    private String balance = "round-robin";
+
+    /**
+     * 写入后固定主库的时长，应大于正常的主从延迟
+     */
+    private Duration pinAfterWrite = Duration.ofSeconds(5);
+
+    private String pinCookie = "rw_pin";
+
+    /**
+     * 从库延迟超过该值时暂停使用，恢复后重新加入
+     */
+    private Duration maxReplicaLag = Duration.ofSeconds(3);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.ecommerce.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 按写后固定 Cookie 设置本次请求的路由上下文，请求结束后清理
+ */
+public class ReplicaPinFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (RoutingContext.pinCookieName().equals(cookie.getName())) {
+                    try {
+                        // Cookie 由客户端持有，最多固定 pinDuration
+                        RoutingContext.pinUntil(Long.parseLong(cookie.getValue()));
+                    } catch (NumberFormatException ignored) {
+                        // 非法值忽略
+                    }
+                }
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RoutingContext.clear();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ecommerce.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+/**
+ * 读写分离的线程上下文
+ * <ul>
+ *     <li>语句类型：非事务的查询由 MyBatis 拦截器标记为只读，可路由到从库</li>
+ *     <li>写后固定主库：本线程写入后 pinDuration 内的读取都走主库；Web 请求同时写入 Cookie，
+ *     之后的请求无论落到哪个节点都固定主库，避免读到从库延迟前的旧数据</li>
+ *     <li>强制主库：{@link #primary(Supplier)} 内的读取走主库</li>
+ * </ul>
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private static volatile long pinDurationMillis = 5000;
+
+    private static volatile String pinCookieName = "rw_pin";
+
+    private RoutingContext() {
+    }
+
+    static void configure(long pinDurationMillis, String pinCookieName) {
+        RoutingContext.pinDurationMillis = pinDurationMillis;
+        RoutingContext.pinCookieName = pinCookieName;
+    }
+
+    static String pinCookieName() {
+        return pinCookieName;
+    }
+
+    /**
+     * 在主库上执行（用于写后立即读取最新数据的后台任务）
+     */
+    public static <T> T primary(Supplier<T> action) {
+        State state = STATE.get();
+        state.primaryDepth++;
+        try {
+            return action.get();
+        } finally {
+            state.primaryDepth--;
+        }
+    }
+
+    /**
+     * 当前读取是否必须走主库
+     */
+    static boolean isPrimaryRequired() {
+        State state = STATE.get();
+        return state.primaryDepth > 0 || state.pinnedUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * 当前非事务语句是否为只读查询（未标记时按写处理）
+     */
+    static boolean isReadStatement() {
+        return STATE.get().readStatement;
+    }
+
+    /**
+     * 标记即将执行的语句类型，返回之前的标记以便恢复
+     */
+    static boolean markStatement(boolean read) {
+        State state = STATE.get();
+        boolean previous = state.readStatement;
+        state.readStatement = read;
+        return previous;
+    }
+
+    /**
+     * 记录写入：本线程和（Web 请求的）客户端在 pinDuration 内固定主库
+     */
+    static void markWrite() {
+        State state = STATE.get();
+        long pinnedUntil = System.currentTimeMillis() + pinDurationMillis;
+        state.pinnedUntil = Math.max(state.pinnedUntil, pinnedUntil);
+        if (state.cookieWritten) {
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+            HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+            if (response != null && !response.isCommitted()) {
+                Cookie cookie = new Cookie(pinCookieName, String.valueOf(pinnedUntil));
+                cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+                cookie.setMaxAge((int) Math.max(1, (pinDurationMillis + 999) / 1000));
+                cookie.setHttpOnly(true);
+                response.addCookie(cookie);
+                state.cookieWritten = true;
+            }
+        }
+    }
+
+    /**
+     * 请求开始时按 Cookie 恢复写后固定
+     */
+    static void pinUntil(long pinnedUntil) {
+        State state = STATE.get();
+        long limit = System.currentTimeMillis() + pinDurationMillis;
+        state.pinnedUntil = Math.max(state.pinnedUntil, Math.min(pinnedUntil, limit));
+    }
+
+    static void clear() {
+        STATE.remove();
+    }
+
+    private static final class State {
+
+        private boolean readStatement;
+
+        private long pinnedUntil;
+
+        private int primaryDepth;
+
+        private boolean cookieWritten;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.ecommerce.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分类DTO类
+ */
+public class CategoryDTO {
+
+    /**
+     * 完整分类树响应DTO
+     */
+    @Data
+    public static class TreeResponse {
+        private String version; // 分类树版本（内容哈希），同时作为 ETag
+        private List<TreeNode> categories; // 顶级分类，子分类嵌套在 children 中
+    }
+
+    /**
+     * 分类树节点DTO
+     */
+    @Data
+    public static class TreeNode {
+        private Long id;
+        private String name;
+        private String description;
+        private Long parentId;
+        private Integer sortOrder;
+        private List<TreeNode> children;
+    }
+}
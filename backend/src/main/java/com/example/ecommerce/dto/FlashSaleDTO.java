@@ -0,0 +1,82 @@
+package com.example.ecommerce.dto;
+
+import lombok.Data;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀DTO类
+ */
+public class FlashSaleDTO {
+
+    /**
+     * 秒杀活动创建DTO
+     */
+    @Data
+    public static class CreateRequest {
+        @NotNull(message = "商品ID不能为空")
+        private Long productId;
+
+        @NotNull(message = "秒杀价不能为空")
+        @DecimalMin(value = "0.01", message = "秒杀价必须大于0")
+        private BigDecimal price;
+
+        @NotNull(message = "活动库存不能为空")
+        @Min(value = 1, message = "活动库存必须大于0")
+        private Integer stock;
+
+        @Min(value = 1, message = "限购数量必须大于0")
+        private Integer perUserLimit = 1;
+
+        @NotNull(message = "开始时间不能为空")
+        private LocalDateTime startTime;
+
+        @NotNull(message = "结束时间不能为空")
+        private LocalDateTime endTime;
+    }
+
+    /**
+     * 秒杀下单DTO
+     */
+    @Data
+    public static class PurchaseRequest {
+        @Min(value = 1, message = "购买数量必须大于0")
+        private Integer quantity = 1;
+
+        @NotNull(message = "收货地址ID不能为空")
+        private Long addressId;
+
+        @NotBlank(message = "收货人姓名不能为空")
+        private String receiverName;
+
+        @NotBlank(message = "收货人电话不能为空")
+        private String receiverPhone;
+
+        @NotBlank(message = "收货地址不能为空")
+        private String receiverAddress;
+
+        private String remarks;
+    }
+
+    /**
+     * 秒杀活动响应DTO
+     */
+    @Data
+    public static class SaleResponse {
+        private Long id;
+        private Long productId;
+        private BigDecimal price;
+        private Integer totalStock;
+        private Integer sold; // 已生成订单的数量
+        private Long remaining; // 剩余可抢数量（令牌池）
+        private Integer perUserLimit;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private Integer status;
+    }
+}
@@ -51,6 +51,32 @@ public class OrderDTO {
         private Integer quantity;
     }
 
+    /**
+     * 异步下单排队中的订单（订单号在入队时分配）
+     */
+    @Data
+    public static class QueuedOrder {
+        private String orderNumber;
+        private Long userId;
+        private CreateOrderRequest request;
+    }
+
+    /**
+     * 秒杀订单（库存已在活动创建时划出，不再扣减商品库存）
+     */
+    @Data
+    public static class FlashSaleOrder {
+        private Long userId;
+        private Long productId;
+        private BigDecimal price; // 秒杀价
+        private Integer quantity;
+        private Long addressId;
+        private String receiverName;
+        private String receiverPhone;
+        private String receiverAddress;
+        private String remarks;
+    }
+
     /**
      * 订单查询条件DTO
      */
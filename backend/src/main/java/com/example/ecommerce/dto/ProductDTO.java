@@ -1,7 +1,9 @@
 package com.example.ecommerce.dto;
 
 import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -37,6 +39,9 @@ public class ProductDTO {
 
         private String mainImage;
 
+        @Size(max = 100, message = "品牌长度不能超过100字符")
+        private String brand;
+
         private Integer status = 1; // 默认上架
     }
 
@@ -47,6 +52,8 @@ public class ProductDTO {
     public static class ProductQuery {
         private String name; // 商品名称模糊查询
         private Long categoryId; // 分类ID
+        private boolean includeDescendants = true; // 分类筛选是否包含全部子分类
+        private String brand; // 品牌
         private BigDecimal minPrice; // 最低价格
         private BigDecimal maxPrice; // 最高价格
         private Integer status; // 商品状态
@@ -54,6 +61,111 @@ public class ProductDTO {
         private String sortOrder = "desc"; // 排序方向
         private Integer page = 1; // 页码
         private Integer size = 20; // 每页大小
+        private String cursor; // 游标分页：上一页返回的 nextCursor，传入时忽略 page
+        private CountMode countMode = CountMode.EXACT; // 总数统计方式
+        private SearchMode searchMode; // 名称搜索方式，为空时按排序方式自动选择
+        private boolean facets; // 是否返回分面统计
+
+        /**
+         * 名称去掉首尾空白，空白时视为不筛选；SQL 和缓存 key 使用同一个值
+         */
+        public void setName(String name) {
+            this.name = normalize(name);
+        }
+
+        public void setBrand(String brand) {
+            this.brand = normalize(brand);
+        }
+
+        /**
+         * 筛选条件，用作计数缓存的 key（不含排序和分页）；name、brand 已在写入时归一化
+         */
+        public String filterKey() {
+            return "name=" + (name == null ? "" : name) +
+                    "|category=" + (categoryId == null ? "" : categoryId + (includeDescendants ? "+" : "")) +
+                    "|brand=" + (brand == null ? "" : brand) +
+                    "|status=" + (status == null ? "" : status) +
+                    "|min=" + (minPrice == null ? "" : minPrice.stripTrailingZeros().toPlainString()) +
+                    "|max=" + (maxPrice == null ? "" : maxPrice.stripTrailingZeros().toPlainString()) +
+                    "|mode=" + (fulltextSearch() ? searchMode : SearchMode.LIKE);
+        }
+
+        /**
+         * 是否使用全文索引匹配名称
+         */
+        public boolean fulltextSearch() {
+            return name != null && !name.trim().isEmpty() && searchMode != null && searchMode.isFulltext();
+        }
+
+        /**
+         * 是否按全文相关度排序（仅全文搜索时有效，否则按创建时间排序）
+         */
+        public boolean relevanceSort() {
+            return "relevance".equals(sortBy) && fulltextSearch();
+        }
+
+        private static String normalize(String value) {
+            if (value == null) {
+                return null;
+            }
+            String trimmed = value.trim();
+            return trimmed.isEmpty() ? null : trimmed;
+        }
+    }
+
+    /**
+     * 名称搜索方式
+     */
+    public enum SearchMode {
+        LIKE, // 模糊匹配 LIKE '%name%'
+        NATURAL, // 全文索引自然语言模式
+        BOOLEAN; // 全文索引布尔模式，支持 +、-、"" 等运算符
+
+        public static SearchMode of(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return SearchMode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("不支持的搜索方式：" + value);
+            }
+        }
+
+        public boolean isFulltext() {
+            return this != LIKE;
+        }
+    }
+
+    /**
+     * 列表总数统计方式
+     */
+    public enum CountMode {
+        EXACT, // 精确总数（按筛选条件缓存）
+        CAPPED, // 最多统计到若干页，超出部分不再计数
+        HAS_MORE; // 不统计总数，多取一条判断是否还有下一页
+
+        public static CountMode of(String value) {
+            if (value == null || value.isEmpty()) {
+                return EXACT;
+            }
+            try {
+                return CountMode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("不支持的总数统计方式：" + value);
+            }
+        }
+    }
+
+    /**
+     * 批量扣减库存时库存不足的商品
+     */
+    @Data
+    public static class StockShortage {
+        private Long productId;
+        private String productName; // 商品不存在时为空
+        private Integer requested; // 请求扣减数量
+        private Integer available; // 当前库存，商品不存在时为0
     }
 
     /**
@@ -95,6 +207,7 @@ public class ProductDTO {
         private String brand;
         private Integer status;
         private Integer salesCount;
+        private LocalDateTime createdAt;
     }
 
     /**
@@ -107,5 +220,32 @@ public class ProductDTO {
         private Integer page;
         private Integer size;
         private Integer pages;
+        private String nextCursor; // 下一页游标，为空表示没有更多数据
+        private Boolean hasMore; // 是否还有下一页
+        private Boolean totalExact; // total 是否为精确值（CAPPED 模式达到上限时为 false）
+        private FacetResponse facets; // 分面统计，未请求或索引未就绪时为空
+    }
+
+    /**
+     * 分面统计结果
+     * 每个维度的计数基于除该维度自身以外的全部筛选条件，便于前端多选切换
+     */
+    @Data
+    public static class FacetResponse {
+        private List<FacetValue> brands; // 品牌
+        private List<FacetValue> priceRanges; // 价格区间，按区间顺序排列
+        private List<FacetValue> categories; // 分类
+    }
+
+    /**
+     * 分面取值及对应商品数
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value; // 取值：品牌名、价格区间（如 100-500）或分类ID
+        private String label; // 展示名称
+        private Long count; // 商品数
     }
 } 
\ No newline at end of file
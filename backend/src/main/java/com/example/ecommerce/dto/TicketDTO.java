@@ -0,0 +1,29 @@
+package com.example.ecommerce.dto;
+
+import lombok.Data;
+
+/**
+ * 排队凭证DTO类（异步下单、秒杀抢购共用）
+ */
+public class TicketDTO {
+
+    /**
+     * 凭证状态
+     */
+    public enum TicketStatus {
+        QUEUED, // 排队中
+        SUCCESS, // 订单已创建
+        FAILED // 下单失败（秒杀名额已退回）
+    }
+
+    /**
+     * 凭证响应DTO
+     */
+    @Data
+    public static class TicketResponse {
+        private String ticketId; // 异步下单时即订单号
+        private TicketStatus status;
+        private Long orderId; // 订单创建成功后返回
+        private String message;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.ecommerce.entity;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀活动实体类
+ */
+@Data
+public class FlashSale {
+    private Long id;
+    private Long productId;
+    private BigDecimal price;
+    private Integer totalStock;
+    private Integer sold;
+    private Integer perUserLimit;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer status;
+    private Integer isDeleted;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
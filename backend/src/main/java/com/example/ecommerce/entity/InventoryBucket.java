@@ -0,0 +1,16 @@
+package com.example.ecommerce.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 库存分桶实体类
+ * 热点商品的库存拆分到多行，并发扣减分散到不同行锁上
+ */
+@Data
+public class InventoryBucket {
+    private Long productId;
+    private Integer bucketNo;
+    private Integer stock;
+    private LocalDateTime updatedAt;
+}
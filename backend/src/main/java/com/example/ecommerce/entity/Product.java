@@ -53,6 +53,11 @@ public class Product implements Serializable {
      */
     private String mainImage;
 
+    /**
+     * 品牌
+     */
+    private String brand;
+
     /**
      * 商品状态：1-上架，0-下架
      */
@@ -63,6 +68,11 @@ public class Product implements Serializable {
      */
     private Integer salesCount;
 
+    /**
+     * 库存分桶数，0 表示不分桶（库存在 stock 字段中）
+     */
+    private Integer stockBuckets;
+
     /**
      * 创建时间
      */
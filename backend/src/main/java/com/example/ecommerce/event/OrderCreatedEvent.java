@@ -0,0 +1,17 @@
+package com.example.ecommerce.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 订单创建事件
+ * 由 OrderServiceImpl 在创建订单后发布，订单ID过滤等组件在事务提交后据此更新
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OrderCreatedEvent {
+
+    private final Long orderId;
+}
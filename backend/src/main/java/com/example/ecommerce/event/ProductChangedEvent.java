@@ -0,0 +1,63 @@
+package com.example.ecommerce.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 商品变更事件
+ * 由 ProductServiceImpl 在写操作后发布，缓存等组件在事务提交后据此失效数据
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STATUS_CHANGED,
+        STOCK_CHANGED,
+        SALES_CHANGED,
+        IMAGES_CHANGED
+    }
+
+    private final Long productId;
+
+    private final Type type;
+
+    /**
+     * 变更前后商品所属的分类ID（更换分类时包含新旧两个），未知时为空
+     */
+    private final List<Long> categoryIds;
+
+    /**
+     * 变更值：STATUS_CHANGED 时为新状态，SALES_CHANGED 时为销量增量，其余类型为 null。
+     * 订阅方可据此原地更新，不必重新读取商品
+     */
+    private final Integer value;
+
+    public ProductChangedEvent(Long productId, Type type) {
+        this(productId, type, Collections.emptyList(), null);
+    }
+
+    public ProductChangedEvent(Long productId, Type type, Long... categoryIds) {
+        this(productId, type, Arrays.asList(categoryIds), null);
+    }
+
+    public static ProductChangedEvent statusChanged(Long productId, Long categoryId, Integer status) {
+        return new ProductChangedEvent(productId, Type.STATUS_CHANGED, Collections.singletonList(categoryId), status);
+    }
+
+    public static ProductChangedEvent salesChanged(Long productId, Integer delta) {
+        return new ProductChangedEvent(productId, Type.SALES_CHANGED, Collections.emptyList(), delta);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.ecommerce.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 库存预占超时事件
+ * 由 StockReservationService 在预占到期并归还库存后发布，订单服务据此取消仍未支付的订单
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class StockReservationExpiredEvent {
+
+    /**
+     * 预占ID（订单号）
+     */
+    private final String reservationId;
+}
@@ -0,0 +1,329 @@
+package com.example.ecommerce.flashsale;
+
+import com.example.ecommerce.cache.CacheInvalidationBus;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.entity.FlashSale;
+import com.example.ecommerce.mapper.FlashSaleMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 秒杀准入
+ * <p>
+ * 每个活动在 Redis 中预热一个令牌池（剩余可抢数量）和用户已抢数量，抢购时用 Lua 脚本原子地检查限购并取走令牌；
+ * 令牌取完后本节点记录售罄标记并广播给其他节点，之后的请求在进程内直接拒绝，不再访问 Redis。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FlashSaleGate implements StatsProvider {
+
+    private static final String TOPIC = "flash-sale";
+
+    /**
+     * 售罄标记被清除（令牌退回）的消息前缀，其余消息表示售罄
+     */
+    private static final String AVAILABLE_PREFIX = "+";
+
+    private static final long NOT_WARMED = -2;
+
+    private static final long SOLD_OUT = -1;
+
+    private static final long INSUFFICIENT = -3;
+
+    private static final long LIMIT_EXCEEDED = -4;
+
+    /**
+     * 取令牌：ARGV[1] 用户ID，ARGV[2] 数量，ARGV[3] 限购数量，ARGV[4] 用户已抢数量的有效期（毫秒，首次写入时设置）；
+     * 成功时返回剩余令牌数
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "stock = tonumber(stock) " +
+            "if stock <= 0 then return -1 end " +
+            "local quantity = tonumber(ARGV[2]) " +
+            "if stock < quantity then return -3 end " +
+            "if tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0') + quantity > tonumber(ARGV[3]) then return -4 end " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], quantity) " +
+            "if redis.call('PTTL', KEYS[2]) < 0 then redis.call('PEXPIRE', KEYS[2], ARGV[4]) end " +
+            "return redis.call('DECRBY', KEYS[1], quantity)", Long.class);
+
+    /**
+     * 退回令牌（排队已满、下单失败）：ARGV[1] 用户ID，ARGV[2] 数量；活动已关闭（令牌池已删除）时只退回限购额度
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], -tonumber(ARGV[2])) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "return redis.call('INCRBY', KEYS[1], ARGV[2])", Long.class);
+
+    /**
+     * 关闭活动：把令牌池中剩余的令牌数原子地移到关闭标记（ARGV[1] 有效期毫秒）并返回；
+     * 已关闭时返回关闭标记中记录的数量（关闭事务重试时结果不变），令牌池不存在时返回 -1
+     */
+    private static final RedisScript<Long> CLOSE_SCRIPT = new DefaultRedisScript<>(
+            "local closed = redis.call('GET', KEYS[2]) " +
+            "if closed then return tonumber(closed) end " +
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -1 end " +
+            "local remaining = math.max(tonumber(stock), 0) " +
+            "redis.call('SET', KEYS[2], remaining, 'PX', ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return remaining", Long.class);
+
+    /**
+     * 撤销关闭（关闭事务回滚）：把关闭标记中的令牌数放回令牌池（ARGV[1] 令牌池有效期毫秒），无关闭标记时返回 -1
+     */
+    private static final RedisScript<Long> REOPEN_SCRIPT = new DefaultRedisScript<>(
+            "local closed = redis.call('GET', KEYS[2]) " +
+            "if not closed then return -1 end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], closed, 'PX', ARGV[1]) end " +
+            "return tonumber(closed)", Long.class);
+
+    /**
+     * 关闭标记的保留时间，覆盖关闭事务的重试和回滚
+     */
+    private static final Duration CLOSED_TTL = Duration.ofDays(1);
+
+    /**
+     * 抢购结果
+     */
+    public enum Admission {
+        ADMITTED,
+        SOLD_OUT,
+        INSUFFICIENT,
+        LIMIT_EXCEEDED
+    }
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final FlashSaleMapper flashSaleMapper;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Map<Long, FlashSale> sales = new ConcurrentHashMap<>();
+
+    private final Set<Long> soldOut = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder rejectedLocally = new LongAdder();
+
+    private final LongAdder rejectedSoldOut = new LongAdder();
+
+    private final LongAdder rejectedLimit = new LongAdder();
+
+    private final LongAdder released = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        invalidationBus.subscribe(TOPIC, message -> {
+            if (message.startsWith(AVAILABLE_PREFIX)) {
+                soldOut.remove(Long.valueOf(message.substring(AVAILABLE_PREFIX.length())));
+            } else {
+                soldOut.add(Long.valueOf(message));
+                sales.remove(Long.valueOf(message));
+            }
+        });
+    }
+
+    /**
+     * 启动时为进行中的活动预热令牌池（已存在时保留）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmActive() {
+        try {
+            for (FlashSale sale : flashSaleMapper.findActive()) {
+                warm(sale);
+            }
+        } catch (Exception e) {
+            log.error("秒杀令牌池预热失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读取活动信息（进程内缓存），活动不存在时返回 null
+     */
+    public FlashSale sale(Long saleId) {
+        FlashSale sale = sales.get(saleId);
+        if (sale == null) {
+            sale = flashSaleMapper.selectById(saleId);
+            if (sale != null) {
+                sales.put(saleId, sale);
+            }
+        }
+        return sale;
+    }
+
+    /**
+     * 预热令牌池：剩余数量 = 活动库存 - 已售，已存在时不覆盖（避免把已被取走的令牌重新放回）
+     */
+    public void warm(FlashSale sale) {
+        long remaining = sale.getTotalStock() - (sale.getSold() != null ? sale.getSold() : 0);
+        Duration ttl = keyTtl(sale);
+        if (ttl.isNegative()) {
+            return;
+        }
+        redisTemplate.opsForValue().setIfAbsent(stockKey(sale.getId()), String.valueOf(remaining), ttl);
+        sales.put(sale.getId(), sale);
+        log.info("秒杀令牌池已预热，活动ID：{}，剩余：{}", sale.getId(), remaining);
+    }
+
+    /**
+     * 售罄判断（进程内，O(1)）
+     */
+    public boolean isSoldOut(Long saleId) {
+        return soldOut.contains(saleId);
+    }
+
+    /**
+     * 检查限购并取走令牌
+     */
+    public Admission acquire(FlashSale sale, Long userId, int quantity) {
+        if (soldOut.contains(sale.getId())) {
+            rejectedLocally.increment();
+            return Admission.SOLD_OUT;
+        }
+        List<String> keys = Arrays.asList(stockKey(sale.getId()), usersKey(sale.getId()));
+        Object[] args = {String.valueOf(userId), String.valueOf(quantity), String.valueOf(sale.getPerUserLimit()),
+                String.valueOf(Math.max(keyTtl(sale).toMillis(), 1))};
+        Long result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, args);
+        if (result != null && result == NOT_WARMED) {
+            FlashSale latest = flashSaleMapper.selectById(sale.getId());
+            if (latest != null && latest.getStatus() == 1) {
+                warm(latest);
+                result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, args);
+            }
+        }
+        if (result == null || result == NOT_WARMED || result == SOLD_OUT) {
+            markSoldOut(sale.getId());
+            rejectedSoldOut.increment();
+            return Admission.SOLD_OUT;
+        }
+        if (result == INSUFFICIENT) {
+            rejectedSoldOut.increment();
+            return Admission.INSUFFICIENT;
+        }
+        if (result == LIMIT_EXCEEDED) {
+            rejectedLimit.increment();
+            return Admission.LIMIT_EXCEEDED;
+        }
+        admitted.increment();
+        if (result == 0) {
+            markSoldOut(sale.getId());
+        }
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * 退回令牌和限购额度
+     */
+    public void release(Long saleId, Long userId, int quantity) {
+        try {
+            Long result = redisTemplate.execute(RELEASE_SCRIPT, Arrays.asList(stockKey(saleId), usersKey(saleId)),
+                    String.valueOf(userId), String.valueOf(quantity));
+            released.increment();
+            if (result != null && result > 0 && soldOut.contains(saleId)) {
+                invalidationBus.publish(TOPIC, AVAILABLE_PREFIX + saleId);
+            }
+        } catch (Exception e) {
+            log.error("退回秒杀令牌失败，活动ID：{}，用户ID：{}，原因：{}", saleId, userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭活动：停止抢购并返回令牌池中剩余（未被抢走）的数量，令牌池不存在时返回 -1；
+     * 可重复调用，再次调用返回首次关闭时的数量
+     */
+    public long close(Long saleId) {
+        Long remaining = redisTemplate.execute(CLOSE_SCRIPT, Arrays.asList(stockKey(saleId), closedKey(saleId)),
+                String.valueOf(CLOSED_TTL.toMillis()));
+        markSoldOut(saleId);
+        return remaining != null ? remaining : -1;
+    }
+
+    /**
+     * 撤销关闭：数据库中关闭活动的事务回滚后调用，恢复令牌池并允许继续抢购
+     */
+    public void reopen(FlashSale sale) {
+        try {
+            Long restored = redisTemplate.execute(REOPEN_SCRIPT, Arrays.asList(stockKey(sale.getId()), closedKey(sale.getId())),
+                    String.valueOf(Math.max(keyTtl(sale).toMillis(), 1)));
+            if (restored != null && restored > 0) {
+                soldOut.remove(sale.getId());
+                invalidationBus.publish(TOPIC, AVAILABLE_PREFIX + sale.getId());
+            }
+            log.info("秒杀活动关闭已撤销，活动ID：{}，恢复令牌：{}", sale.getId(), restored);
+        } catch (Exception e) {
+            log.error("撤销秒杀活动关闭失败，活动ID：{}，原因：{}", sale.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 剩余令牌数，令牌池不存在时返回 null
+     */
+    public Long remaining(Long saleId) {
+        String stock = redisTemplate.opsForValue().get(stockKey(saleId));
+        return stock != null ? Math.max(0, Long.parseLong(stock)) : null;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "flashSaleGate";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("admitted", admitted.sum());
+        stats.put("rejectedLocally", rejectedLocally.sum());
+        stats.put("rejectedSoldOut", rejectedSoldOut.sum());
+        stats.put("rejectedLimit", rejectedLimit.sum());
+        stats.put("released", released.sum());
+        stats.put("soldOutSales", soldOut.size());
+        return stats;
+    }
+
+    private void markSoldOut(Long saleId) {
+        if (soldOut.add(saleId)) {
+            invalidationBus.publish(TOPIC, String.valueOf(saleId));
+        }
+    }
+
+    /**
+     * 令牌池和用户已抢数量保留到活动结束后一天
+     */
+    private static Duration keyTtl(FlashSale sale) {
+        return Duration.between(LocalDateTime.now(), sale.getEndTime()).plusDays(1);
+    }
+
+    private static String stockKey(Long saleId) {
+        return "flash:{" + saleId + "}:stock";
+    }
+
+    private static String usersKey(Long saleId) {
+        return "flash:{" + saleId + "}:users";
+    }
+
+    private static String closedKey(Long saleId) {
+        return "flash:{" + saleId + "}:closed";
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ecommerce.flashsale;
+
+import com.example.ecommerce.common.BatchWriter;
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.common.TicketStore;
+import com.example.ecommerce.dto.OrderDTO;
+import com.example.ecommerce.dto.TicketDTO;
+import com.example.ecommerce.mapper.FlashSaleMapper;
+import com.example.ecommerce.service.OrderService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 秒杀订单写入队列
+ * <p>
+ * 取得令牌的请求进入有界队列后立即返回排队凭证，后台线程把队列中的请求按批写入数据库（见 {@link BatchWriter}）：
+ * 一批订单一条 INSERT、订单项一条 INSERT、每个活动一次已售数量更新，数据库写入次数与并发请求数无关。
+ * 整批失败时逐个重试，单个请求失败则退回令牌并把凭证标记为失败。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FlashSaleOrderWriter implements StatsProvider {
+
+    private static final String TICKET_KEY_PREFIX = "flash:ticket:";
+
+    private final OrderService orderService;
+
+    private final FlashSaleMapper flashSaleMapper;
+
+    private final FlashSaleGate flashSaleGate;
+
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.flash-sale.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.flash-sale.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 取到第一个请求后继续等待凑批的最长时间
+     */
+    @Value("${app.flash-sale.linger:0ms}")
+    private Duration linger;
+
+    @Value("${app.flash-sale.ticket-ttl:30m}")
+    private Duration ticketTtl;
+
+    private TicketStore ticketStore;
+
+    private BatchWriter<FlashSaleTicket, Long> writer;
+
+    @PostConstruct
+    public void start() {
+        ticketStore = new TicketStore(redisTemplate, TICKET_KEY_PREFIX, ticketTtl);
+        writer = new BatchWriter<>("flash-sale-order-writer", queueCapacity, 1, batchSize, linger,
+                batch -> deadlockRetryTemplate.execute(() -> insert(batch)),
+                (ticket, orderId) -> ticketStore.succeed(ticket.getOrder().getUserId(), ticket.getTicketId(), orderId),
+                this::fail);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+    }
+
+    /**
+     * 请求入队
+     *
+     * @return 排队凭证，队列已满时返回 null
+     */
+    public TicketDTO.TicketResponse submit(FlashSaleTicket ticket) {
+        return ticketStore.enqueue(ticket.getOrder().getUserId(), ticket.getTicketId(), () -> writer.submit(ticket));
+    }
+
+    /**
+     * 读取排队凭证，不存在（已过期）或不属于该用户时返回 null
+     */
+    public TicketDTO.TicketResponse getTicket(Long userId, String ticketId) {
+        return ticketStore.get(userId, ticketId);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "flashSaleOrderWriter";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return writer.stats();
+    }
+
+    private List<Long> insert(List<FlashSaleTicket> batch) {
+        List<OrderDTO.FlashSaleOrder> orders = new ArrayList<>(batch.size());
+        // 按活动ID顺序更新已售数量，与并发批次的加锁顺序一致
+        Map<Long, Integer> soldBySale = new TreeMap<>();
+        for (FlashSaleTicket ticket : batch) {
+            orders.add(ticket.getOrder());
+            soldBySale.merge(ticket.getSaleId(), ticket.getOrder().getQuantity(), Integer::sum);
+        }
+        List<Long> orderIds = orderService.createFlashSaleOrders(orders);
+        soldBySale.forEach(flashSaleMapper::addSold);
+        return orderIds;
+    }
+
+    private void fail(FlashSaleTicket ticket, Exception e) {
+        log.error("秒杀订单创建失败，凭证：{}，原因：{}", ticket.getTicketId(), e.getMessage());
+        flashSaleGate.release(ticket.getSaleId(), ticket.getOrder().getUserId(), ticket.getOrder().getQuantity());
+        ticketStore.fail(ticket.getOrder().getUserId(), ticket.getTicketId(), "下单失败，请重试");
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ecommerce.flashsale;
+
+import com.example.ecommerce.dto.OrderDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 已取得令牌、等待写入订单的秒杀请求
+ */
+@Data
+@AllArgsConstructor
+public class FlashSaleTicket {
+
+    private String ticketId;
+
+    private Long saleId;
+
+    private OrderDTO.FlashSaleOrder order;
+}
@@ -0,0 +1,325 @@
+package com.example.ecommerce.inventory;
+
+import com.example.ecommerce.cache.CacheInvalidationBus;
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.entity.InventoryBucket;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.mapper.InventoryBucketMapper;
+import com.example.ecommerce.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点商品库存分桶
+ * <p>
+ * 开启分桶的商品，库存拆分到 inventory_bucket 表的 N 行中，product.stock 保持为0，读取时由 ProductMapper.STOCK_COLUMN 汇总。
+ * 扣减从随机分桶开始逐个尝试单行扣减，各分桶都不足时再锁定全部分桶跨桶扣减；
+ * 单个商品的并发扣减分散到 N 个行锁上，吞吐随分桶数增长。后台定期把库存重新均衡到各分桶，减少跨桶扣减。
+ * <p>
+ * 所有库存增减（含未分桶的商品）都经过这里，按商品当前模式选择 product 行或分桶行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryBucketService implements StatsProvider {
+
+    private static final String TOPIC = "inventory-bucket";
+
+    private final ProductMapper productMapper;
+
+    private final InventoryBucketMapper inventoryBucketMapper;
+
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    /**
+     * 分桶商品ID -> 分桶数
+     */
+    private final Map<Long, Integer> bucketCounts = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService rebalancer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "inventory-bucket-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder firstBucketHits = new LongAdder();
+
+    private final LongAdder fallbackProbes = new LongAdder();
+
+    private final LongAdder crossBucketDecreases = new LongAdder();
+
+    private final LongAdder rebalances = new LongAdder();
+
+    @Value("${app.inventory.bucket.max-buckets:64}")
+    private int maxBuckets;
+
+    @Value("${app.inventory.bucket.rebalance-interval:10s}")
+    private Duration rebalanceInterval;
+
+    /**
+     * 最少的分桶库存低于平均值的该比例时重新均衡
+     */
+    @Value("${app.inventory.bucket.rebalance-threshold:0.5}")
+    private double rebalanceThreshold;
+
+    @PostConstruct
+    public void init() {
+        invalidationBus.subscribe(TOPIC, productId -> reload(Long.valueOf(productId)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebalancer.scheduleWithFixedDelay(this::rebalanceAll, 0, rebalanceInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdownNow();
+    }
+
+    public boolean isBucketed(Long productId) {
+        return bucketCounts.containsKey(productId);
+    }
+
+    /**
+     * 减少库存，需在事务中调用（跨桶扣减时持有全部分桶的锁直到事务结束）
+     *
+     * @return 库存不足时返回 false
+     */
+    public boolean decreaseStock(Long productId, int quantity) {
+        Integer buckets = bucketCounts.get(productId);
+        if (buckets == null) {
+            if (productMapper.decreaseStock(productId, quantity) > 0) {
+                return true;
+            }
+            // 可能已被其他节点切换为分桶，本节点尚未收到通知
+            if (reload(productId) == 0) {
+                return false;
+            }
+            buckets = bucketCounts.get(productId);
+            if (buckets == null) {
+                return false;
+            }
+        }
+
+        int start = ThreadLocalRandom.current().nextInt(buckets);
+        for (int i = 0; i < buckets; i++) {
+            if (inventoryBucketMapper.decreaseStock(productId, (start + i) % buckets, quantity) > 0) {
+                if (i == 0) {
+                    firstBucketHits.increment();
+                } else {
+                    fallbackProbes.add(i);
+                }
+                return true;
+            }
+        }
+        fallbackProbes.add(buckets);
+        return decreaseAcrossBuckets(productId, quantity);
+    }
+
+    /**
+     * 增加库存
+     *
+     * @return 商品不存在时返回 false
+     */
+    public boolean increaseStock(Long productId, int quantity) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Integer buckets = bucketCounts.get(productId);
+            int updated = buckets == null
+                    ? productMapper.increaseStock(productId, quantity)
+                    : inventoryBucketMapper.increaseStock(productId, ThreadLocalRandom.current().nextInt(buckets), quantity);
+            if (updated > 0) {
+                return true;
+            }
+            // 分桶模式在其他节点被切换过，刷新后重试一次
+            reload(productId);
+        }
+        return false;
+    }
+
+    /**
+     * 设置商品库存总量（后台修改商品库存时），分桶商品平均写入各分桶；不分桶的商品由 updateById 写入，这里不处理
+     * 需在事务中调用
+     */
+    public void resetStock(Long productId, int stock) {
+        Integer buckets = bucketCounts.get(productId);
+        if (buckets == null) {
+            return;
+        }
+        inventoryBucketMapper.lockByProductId(productId);
+        inventoryBucketMapper.upsertStocks(productId, distribute(stock, buckets));
+    }
+
+    /**
+     * 开启、调整或取消（buckets 为0）商品库存分桶，库存总量保持不变
+     */
+    public void configure(Long productId, int buckets) {
+        if (buckets < 0 || buckets > maxBuckets) {
+            throw new RuntimeException("库存分桶数必须在0到" + maxBuckets + "之间");
+        }
+        deadlockRetryTemplate.execute(() -> {
+            Product product = productMapper.lockForStockBuckets(productId);
+            if (product == null) {
+                throw new RuntimeException("商品不存在");
+            }
+            int current = product.getStockBuckets() != null ? product.getStockBuckets() : 0;
+            int total = current > 0 ? sum(inventoryBucketMapper.lockByProductId(productId))
+                    : (product.getStock() != null ? product.getStock() : 0);
+
+            if (buckets == 0) {
+                inventoryBucketMapper.deleteFrom(productId, 0);
+                productMapper.updateStockBuckets(productId, 0, total);
+            } else {
+                inventoryBucketMapper.deleteFrom(productId, buckets);
+                inventoryBucketMapper.upsertStocks(productId, distribute(total, buckets));
+                productMapper.updateStockBuckets(productId, buckets, 0);
+            }
+            return null;
+        });
+        invalidationBus.publish(TOPIC, String.valueOf(productId));
+        log.info("商品库存分桶已调整，商品ID：{}，分桶数：{}", productId, buckets);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "inventoryBuckets";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bucketedProducts", bucketCounts.size());
+        stats.put("firstBucketHits", firstBucketHits.sum());
+        stats.put("fallbackProbes", fallbackProbes.sum());
+        stats.put("crossBucketDecreases", crossBucketDecreases.sum());
+        stats.put("rebalances", rebalances.sum());
+        return stats;
+    }
+
+    /**
+     * 各分桶单独都不足时，锁定全部分桶，从库存多的分桶开始合并扣减
+     */
+    private boolean decreaseAcrossBuckets(Long productId, int quantity) {
+        List<InventoryBucket> buckets = inventoryBucketMapper.lockByProductId(productId);
+        if (sum(buckets) < quantity) {
+            return false;
+        }
+        List<InventoryBucket> ordered = new ArrayList<>(buckets);
+        ordered.sort(Comparator.comparing(InventoryBucket::getStock).reversed());
+        Map<Integer, Integer> stocks = new HashMap<>();
+        int remaining = quantity;
+        for (InventoryBucket bucket : ordered) {
+            int taken = Math.min(remaining, bucket.getStock());
+            stocks.put(bucket.getBucketNo(), bucket.getStock() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        inventoryBucketMapper.upsertStocks(productId, stocks);
+        crossBucketDecreases.increment();
+        return true;
+    }
+
+    /**
+     * 从数据库刷新商品的分桶数
+     *
+     * @return 当前分桶数，商品不存在或不分桶时为0
+     */
+    private int reload(Long productId) {
+        Integer buckets = productMapper.selectStockBuckets(productId);
+        if (buckets == null || buckets <= 0) {
+            bucketCounts.remove(productId);
+            return 0;
+        }
+        bucketCounts.put(productId, buckets);
+        return buckets;
+    }
+
+    /**
+     * 同步分桶商品列表，并把分布不均的商品库存重新平均到各分桶
+     */
+    private void rebalanceAll() {
+        try {
+            Map<Long, Integer> latest = new HashMap<>();
+            for (Product product : productMapper.findBucketedProducts()) {
+                latest.put(product.getId(), product.getStockBuckets());
+            }
+            bucketCounts.putAll(latest);
+            bucketCounts.keySet().retainAll(latest.keySet());
+
+            for (Map.Entry<Long, Integer> entry : latest.entrySet()) {
+                if (needsRebalance(inventoryBucketMapper.findByProductId(entry.getKey()), entry.getValue())) {
+                    deadlockRetryTemplate.execute(() -> rebalance(entry.getKey(), entry.getValue()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("库存分桶均衡失败：{}", e.getMessage());
+        }
+    }
+
+    private Void rebalance(Long productId, int buckets) {
+        List<InventoryBucket> locked = inventoryBucketMapper.lockByProductId(productId);
+        if (!needsRebalance(locked, buckets)) {
+            return null;
+        }
+        inventoryBucketMapper.upsertStocks(productId, distribute(sum(locked), buckets));
+        rebalances.increment();
+        log.debug("商品库存分桶已重新均衡，商品ID：{}", productId);
+        return null;
+    }
+
+    private boolean needsRebalance(List<InventoryBucket> buckets, int expected) {
+        if (buckets.size() != expected) {
+            return true;
+        }
+        int total = sum(buckets);
+        if (total < expected) {
+            return false;
+        }
+        int min = buckets.stream().mapToInt(InventoryBucket::getStock).min().orElse(0);
+        return min < (double) total / expected * rebalanceThreshold;
+    }
+
+    /**
+     * 把总库存平均分到各分桶，余数给序号小的分桶
+     */
+    private static Map<Integer, Integer> distribute(int total, int buckets) {
+        Map<Integer, Integer> stocks = new LinkedHashMap<>();
+        for (int i = 0; i < buckets; i++) {
+            stocks.put(i, total / buckets + (i < total % buckets ? 1 : 0));
+        }
+        return stocks;
+    }
+
+    private static int sum(List<InventoryBucket> buckets) {
+        int total = 0;
+        for (InventoryBucket bucket : buckets) {
+            total += bucket.getStock();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,754 @@
+package com.example.ecommerce.inventory;
+
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.datasource.RoutingContext;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.event.ProductChangedEvent;
+import com.example.ecommerce.event.StockReservationExpiredEvent;
+import com.example.ecommerce.mapper.ProductMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Redis 的库存预占
+ * <p>
+ * 可售库存镜像在 Redis 中，下单时用 Lua 脚本原子地预占多个商品，不再在请求路径上锁定数据库中的商品行。
+ * 预占记录带有效期，到期未支付时归还库存并通知订单服务取消订单。
+ * 预占和归还产生的库存变化累积为待结算增量，由后台批量写回数据库库存（分桶商品写入分桶），
+ * 下单后超时归还的库存在同一结算周期内相互抵消，不会访问数据库。
+ * <p>
+ * 不变式：Redis 可售库存 = 数据库库存（分桶商品为各分桶之和） + 待结算增量 + 结算中增量，定期对账检测并修正偏差。
+ * 结算和对账、首次加载通过结算代数（每次开始和结束结算时递增）判断期间数据库库存是否被结算改动过。
+ * 所有 key 使用同一 hash tag，脚本在 Redis Cluster 中也能访问多个 key。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService implements StatsProvider {
+
+    private static final String KEY_PREFIX = "{stock}:";
+
+    /** 可售库存：商品ID -> 数量 */
+    private static final String AVAILABLE_KEY = KEY_PREFIX + "available";
+
+    /** 待结算增量：商品ID -> 要加到 product.stock 上的数量（扣减为负） */
+    private static final String PENDING_KEY = KEY_PREFIX + "pending";
+
+    /** 正在写回数据库的增量，结构同 PENDING_KEY */
+    private static final String SETTLING_KEY = KEY_PREFIX + "settling";
+
+    /** 开始结算的时间戳，用于识别中途宕机遗留的结算 */
+    private static final String SETTLING_AT_KEY = KEY_PREFIX + "settling-at";
+
+    /** 结算代数 */
+    private static final String GENERATION_KEY = KEY_PREFIX + "generation";
+
+    /** 所有未到期的预占：预占ID -> 到期时间戳 */
+    private static final String HOLDS_KEY = KEY_PREFIX + "holds";
+
+    private static final String HOLD_KEY_PREFIX = KEY_PREFIX + "hold:";
+
+    /** 已释放预占的标记，用于区分"预占已释放"和"从未预占"（秒杀订单、开启预占前创建的订单） */
+    private static final String RELEASED_KEY_PREFIX = KEY_PREFIX + "released:";
+
+    private static final String CONFIRM_RELEASED = "RELEASED";
+
+    private static final long RELEASE_RELEASED = 1;
+
+    private static final long RELEASE_NO_HOLD = -1;
+
+    private static final long STATUS_RESERVED = 1;
+
+    private static final long STATUS_SHORT = 0;
+
+    private static final long STATUS_NOT_LOADED = -1;
+
+    /**
+     * 预占：ARGV[1] 为预占ID，ARGV[2] 为到期时间戳，其后为 (商品ID, 数量) 对
+     * 返回 {状态, 各商品结果}：成功时为剩余库存；库存不足时为当前库存；未加载时未加载的商品为 -1
+     */
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local result = {1} " +
+            "for i = 3, #ARGV, 2 do " +
+            "  local available = redis.call('HGET', KEYS[1], ARGV[i]) " +
+            "  if not available then result[1] = -1; result[#result + 1] = -1 " +
+            "  else " +
+            "    available = tonumber(available) " +
+            "    if available < tonumber(ARGV[i + 1]) and result[1] == 1 then result[1] = 0 end " +
+            "    result[#result + 1] = available " +
+            "  end " +
+            "end " +
+            "if result[1] ~= 1 then return result end " +
+            "for i = 3, #ARGV, 2 do " +
+            "  local quantity = tonumber(ARGV[i + 1]) " +
+            "  result[(i - 1) / 2 + 1] = redis.call('HINCRBY', KEYS[1], ARGV[i], -quantity) " +
+            "  redis.call('HINCRBY', KEYS[2], ARGV[i], -quantity) " +
+            "  redis.call('HINCRBY', KEYS[3], ARGV[i], quantity) " +
+            "end " +
+            "redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1]) " +
+            "return result", List.class);
+
+    /**
+     * 释放预占并归还库存：ARGV[1] 为预占ID，ARGV[2] 非空时只释放到期时间不晚于该值的预占（超时清理），ARGV[3] 为释放标记有效期（毫秒）
+     * 返回 1 表示已释放，0 表示未到期或此前已释放，-1 表示从未持有预占
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[3]) == 0 then " +
+            "  redis.call('ZREM', KEYS[4], ARGV[1]) " +
+            "  if redis.call('EXISTS', KEYS[5]) == 1 then return 0 end " +
+            "  return -1 " +
+            "end " +
+            "if ARGV[2] ~= '' then " +
+            "  local expireAt = redis.call('ZSCORE', KEYS[4], ARGV[1]) " +
+            "  if not expireAt or tonumber(expireAt) > tonumber(ARGV[2]) then return 0 end " +
+            "end " +
+            "local items = redis.call('HGETALL', KEYS[3]) " +
+            "for i = 1, #items, 2 do " +
+            "  redis.call('HINCRBY', KEYS[2], items[i], items[i + 1]) " +
+            "  if redis.call('HEXISTS', KEYS[1], items[i]) == 1 then redis.call('HINCRBY', KEYS[1], items[i], items[i + 1]) end " +
+            "end " +
+            "redis.call('DEL', KEYS[3]) " +
+            "redis.call('ZREM', KEYS[4], ARGV[1]) " +
+            "redis.call('SET', KEYS[5], '1', 'PX', ARGV[3]) " +
+            "return 1", Long.class);
+
+    /**
+     * 确认预占（已支付）：删除预占记录，库存不再归还；返回预占的 (商品ID, 数量) 对，
+     * 预占已释放时返回 {'RELEASED'}，从未预占时返回空
+     */
+    private static final RedisScript<List> CONFIRM_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('HGETALL', KEYS[1]) " +
+            "if #items == 0 and redis.call('EXISTS', KEYS[3]) == 1 then return {'RELEASED'} end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('ZREM', KEYS[2], ARGV[1]) " +
+            "return items", List.class);
+
+    /**
+     * 恢复预占记录（确认所在事务回滚时）：ARGV[1] 为预占ID，ARGV[2] 为到期时间戳，其后为 (商品ID, 数量) 对
+     */
+    private static final RedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * 直接归还库存（已支付订单取消）：ARGV 为 (商品ID, 数量) 对
+     */
+    private static final RedisScript<Long> RESTOCK_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV, 2 do " +
+            "  redis.call('HINCRBY', KEYS[2], ARGV[i], ARGV[i + 1]) " +
+            "  if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1 then redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "end " +
+            "return 1", Long.class);
+
+    /**
+     * 从数据库加载可售库存：ARGV[1] 为读取数据库前的结算代数，其后为 (商品ID, product.stock) 对
+     * 期间开始或完成过结算、或正在结算时返回 -1，由调用方重试
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[4]) or '0') ~= ARGV[1] or redis.call('EXISTS', KEYS[3]) == 1 then return -1 end " +
+            "for i = 2, #ARGV, 2 do " +
+            "  if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 0 then " +
+            "    redis.call('HSET', KEYS[1], ARGV[i], tonumber(ARGV[i + 1]) + tonumber(redis.call('HGET', KEYS[2], ARGV[i]) or '0')) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    /**
+     * 开始结算：ARGV[1] 为当前时间戳，ARGV[2] 为结算超时毫秒数
+     * 返回 {状态, (商品ID, 增量) 对}：1 开始结算；0 没有待结算增量；-1 其他节点正在结算；
+     * 遗留的结算超时后先并回待结算增量（可能已写入数据库，由对账修正），状态为 2
+     */
+    private static final RedisScript<List> SETTLE_BEGIN_SCRIPT = new DefaultRedisScript<>(
+            "local status = 1 " +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then " +
+            "  local startedAt = tonumber(redis.call('GET', KEYS[3]) or '0') " +
+            "  if tonumber(ARGV[1]) - startedAt < tonumber(ARGV[2]) then return {-1} end " +
+            "  local stale = redis.call('HGETALL', KEYS[2]) " +
+            "  for i = 1, #stale, 2 do redis.call('HINCRBY', KEYS[1], stale[i], stale[i + 1]) end " +
+            "  redis.call('DEL', KEYS[2]) " +
+            "  status = 2 " +
+            "end " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {0} end " +
+            "redis.call('RENAME', KEYS[1], KEYS[2]) " +
+            "redis.call('SET', KEYS[3], ARGV[1]) " +
+            "redis.call('INCR', KEYS[4]) " +
+            "local result = redis.call('HGETALL', KEYS[2]) " +
+            "table.insert(result, 1, status) " +
+            "return result", List.class);
+
+    /**
+     * 结束结算：ARGV 为未能写入数据库、需要并回待结算增量的 (商品ID, 增量) 对
+     */
+    private static final RedisScript<Long> SETTLE_END_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('DEL', KEYS[2], KEYS[3]) " +
+            "redis.call('INCR', KEYS[4]) " +
+            "return 1", Long.class);
+
+    /**
+     * 对账：ARGV[1] 为读取数据库前的结算代数，ARGV[2] 为是否修正（1/0），其后为 (商品ID, product.stock) 对，
+     * 商品已删除时 product.stock 传 "-"；返回存在偏差的 (商品ID, 偏差) 对，结算代数变化或正在结算时返回 {-1}
+     */
+    private static final RedisScript<List> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[4]) or '0') ~= ARGV[1] or redis.call('EXISTS', KEYS[3]) == 1 then return {-1} end " +
+            "local drifts = {} " +
+            "for i = 3, #ARGV, 2 do " +
+            "  local available = redis.call('HGET', KEYS[1], ARGV[i]) " +
+            "  if available then " +
+            "    if ARGV[i + 1] == '-' then " +
+            "      redis.call('HDEL', KEYS[1], ARGV[i]) " +
+            "    else " +
+            "      local expected = tonumber(ARGV[i + 1]) + tonumber(redis.call('HGET', KEYS[2], ARGV[i]) or '0') " +
+            "      local drift = tonumber(available) - expected " +
+            "      if drift ~= 0 then " +
+            "        if ARGV[2] == '1' then redis.call('HINCRBY', KEYS[1], ARGV[i], -drift) end " +
+            "        drifts[#drifts + 1] = ARGV[i] " +
+            "        drifts[#drifts + 1] = drift " +
+            "      end " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return drifts", List.class);
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ProductMapper productMapper;
+
+    private final InventoryBucketService inventoryBucketService;
+
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stock-reservation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder reservations = new LongAdder();
+
+    private final LongAdder shortages = new LongAdder();
+
+    private final LongAdder releases = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private final LongAdder confirmations = new LongAdder();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder settlements = new LongAdder();
+
+    private final LongAdder settledProducts = new LongAdder();
+
+    private final LongAdder settlementFailures = new LongAdder();
+
+    private final LongAdder reconciliations = new LongAdder();
+
+    private final LongAdder drifts = new LongAdder();
+
+    private final AtomicLong lastDriftAt = new AtomicLong();
+
+    @Value("${app.stock-reservation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.stock-reservation.hold-ttl:15m}")
+    private Duration holdTtl;
+
+    /**
+     * 释放标记的保留时间，需长于订单从创建到取消/支付的最长间隔
+     */
+    @Value("${app.stock-reservation.released-marker-ttl:7d}")
+    private Duration releasedMarkerTtl;
+
+    @Value("${app.stock-reservation.expire-interval:5s}")
+    private Duration expireInterval;
+
+    @Value("${app.stock-reservation.expire-batch-size:100}")
+    private int expireBatchSize;
+
+    @Value("${app.stock-reservation.settle-interval:1s}")
+    private Duration settleInterval;
+
+    @Value("${app.stock-reservation.settle-timeout:1m}")
+    private Duration settleTimeout;
+
+    @Value("${app.stock-reservation.reconcile-interval:5m}")
+    private Duration reconcileInterval;
+
+    @Value("${app.stock-reservation.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Value("${app.stock-reservation.auto-correct:true}")
+    private boolean autoCorrect;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 原子地预占多个商品的库存，任一商品不足时全部不预占
+     * 在事务中调用时，事务回滚后自动释放
+     *
+     * @param reservationId 预占ID（订单号）
+     * @param quantities    商品ID -> 数量
+     * @return 库存不足的商品，为空表示预占成功
+     */
+    public List<ProductDTO.StockShortage> reserve(String reservationId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        List<String> args = new ArrayList<>(sorted.size() * 2 + 2);
+        args.add(reservationId);
+        args.add(String.valueOf(System.currentTimeMillis() + holdTtl.toMillis()));
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            args.add(String.valueOf(entry.getKey()));
+            args.add(String.valueOf(entry.getValue()));
+        }
+        List<String> keys = Arrays.asList(AVAILABLE_KEY, PENDING_KEY, holdKey(reservationId), HOLDS_KEY);
+
+        for (int attempt = 1; ; attempt++) {
+            List<?> result = redisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+            long status = toLong(result.get(0));
+            if (status == STATUS_RESERVED) {
+                reservations.increment();
+                afterCompletion(false, () -> release(reservationId));
+                log.debug("库存预占成功，预占ID：{}，明细：{}", reservationId, sorted);
+                return Collections.emptyList();
+            }
+            List<Long> productIds = new ArrayList<>(sorted.keySet());
+            if (status == STATUS_SHORT) {
+                shortages.increment();
+                List<ProductDTO.StockShortage> shortageList = new ArrayList<>();
+                for (int i = 0; i < productIds.size(); i++) {
+                    long available = toLong(result.get(i + 1));
+                    Integer requested = sorted.get(productIds.get(i));
+                    if (available < requested) {
+                        ProductDTO.StockShortage shortage = new ProductDTO.StockShortage();
+                        shortage.setProductId(productIds.get(i));
+                        shortage.setRequested(requested);
+                        shortage.setAvailable((int) Math.max(0, available));
+                        shortageList.add(shortage);
+                    }
+                }
+                return shortageList;
+            }
+            if (attempt >= MAX_LOAD_ATTEMPTS) {
+                throw new RuntimeException("库存加载失败，请稍后重试");
+            }
+            List<Long> missing = new ArrayList<>();
+            for (int i = 0; i < productIds.size(); i++) {
+                if (toLong(result.get(i + 1)) == STATUS_NOT_LOADED) {
+                    missing.add(productIds.get(i));
+                }
+            }
+            load(missing);
+        }
+    }
+
+    /**
+     * 释放预占并归还库存（未支付订单取消、事务回滚）；预占不存在（已确认或已超时释放）时忽略
+     */
+    public boolean release(String reservationId) {
+        return releaseHold(reservationId) == RELEASE_RELEASED;
+    }
+
+    /**
+     * 在当前事务提交后释放预占（待支付订单取消）；订单从未持有预占（秒杀订单、开启预占前创建的订单）时直接归还库存
+     *
+     * @param quantities 订单的商品ID -> 数量，仅在没有预占时使用
+     */
+    public void releaseOrRestockAfterCommit(String reservationId, Map<Long, Integer> quantities) {
+        afterCompletion(true, () -> {
+            if (releaseHold(reservationId) == RELEASE_NO_HOLD) {
+                restock(quantities);
+                log.info("订单未持有库存预占，已直接归还库存，预占ID：{}", reservationId);
+            }
+        });
+    }
+
+    /**
+     * 确认预占（订单已支付），库存不再归还
+     * 在事务中调用时，事务回滚后恢复预占，仍按原有效期（至少保留一个清理周期）到期释放
+     *
+     * @return 预占已超时释放时返回 false；从未持有预占（秒杀订单、开启预占前创建的订单）时返回 true
+     */
+    public boolean confirm(String reservationId) {
+        List<?> items = redisTemplate.execute(CONFIRM_SCRIPT,
+                Arrays.asList(holdKey(reservationId), HOLDS_KEY, releasedKey(reservationId)), reservationId);
+        if (items == null || items.isEmpty()) {
+            return true;
+        }
+        if (items.size() == 1 && CONFIRM_RELEASED.equals(String.valueOf(items.get(0)))) {
+            return false;
+        }
+        confirmations.increment();
+        afterCompletion(false, () -> {
+            List<String> args = new ArrayList<>(items.size() + 2);
+            args.add(reservationId);
+            args.add(String.valueOf(System.currentTimeMillis() + expireInterval.toMillis()));
+            items.forEach(item -> args.add(String.valueOf(item)));
+            redisTemplate.execute(RESTORE_SCRIPT, Arrays.asList(holdKey(reservationId), HOLDS_KEY), args.toArray());
+        });
+        return true;
+    }
+
+    /**
+     * 在当前事务提交后直接归还库存（已支付订单取消）
+     */
+    public void restockAfterCommit(Map<Long, Integer> quantities) {
+        afterCompletion(true, () -> restock(quantities));
+    }
+
+    /**
+     * 商品信息（可能包括库存）被直接修改后丢弃 Redis 中的可售库存，下次预占时重新加载
+     * 待结算增量保留，重新加载后仍会计入
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || (event.getType() != ProductChangedEvent.Type.UPDATED
+                && event.getType() != ProductChangedEvent.Type.DELETED)) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().delete(AVAILABLE_KEY, String.valueOf(event.getProductId()));
+        } catch (Exception e) {
+            log.warn("清除商品可售库存失败，商品ID：{}，原因：{}", event.getProductId(), e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::expire, expireInterval.toMillis(), expireInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::settle, settleInterval.toMillis(), settleInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcile, reconcileInterval.toMillis(), reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("库存预占已启用，预占有效期：{}", holdTtl);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "stockReservation";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("reservations", reservations.sum());
+        stats.put("shortages", shortages.sum());
+        stats.put("releases", releases.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("confirmations", confirmations.sum());
+        stats.put("loads", loads.sum());
+        stats.put("settlements", settlements.sum());
+        stats.put("settledProducts", settledProducts.sum());
+        stats.put("settlementFailures", settlementFailures.sum());
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("drifts", drifts.sum());
+        stats.put("lastDriftAt", lastDriftAt.get());
+        if (enabled) {
+            try {
+                stats.put("activeHolds", redisTemplate.opsForZSet().zCard(HOLDS_KEY));
+                stats.put("pendingProducts", redisTemplate.opsForHash().size(PENDING_KEY));
+            } catch (Exception e) {
+                stats.put("error", e.getMessage());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 从数据库加载商品的可售库存，结算代数变化时重读
+     */
+    private void load(List<Long> productIds) {
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            String generation = generation();
+            List<String> args = new ArrayList<>(productIds.size() * 2 + 1);
+            args.add(generation);
+            // 必须读主库：从库可能尚未应用刚提交的结算，按旧库存加载会超卖
+            for (Product product : RoutingContext.primary(() -> productMapper.selectByIds(productIds))) {
+                args.add(String.valueOf(product.getId()));
+                args.add(String.valueOf(product.getStock() != null ? product.getStock() : 0));
+            }
+            Long result = redisTemplate.execute(LOAD_SCRIPT,
+                    Arrays.asList(AVAILABLE_KEY, PENDING_KEY, SETTLING_KEY, GENERATION_KEY), args.toArray());
+            if (Long.valueOf(1).equals(result)) {
+                loads.increment();
+                return;
+            }
+            sleep(50);
+        }
+    }
+
+    /**
+     * 释放到期的预占并通知订单服务
+     */
+    private void expire() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> expired = redisTemplate.opsForZSet().rangeByScore(HOLDS_KEY, 0, now, 0, expireBatchSize);
+            if (expired == null) {
+                return;
+            }
+            for (String reservationId : expired) {
+                Long result = redisTemplate.execute(RELEASE_SCRIPT, releaseKeys(reservationId),
+                        reservationId, String.valueOf(now), String.valueOf(releasedMarkerTtl.toMillis()));
+                if (Long.valueOf(1).equals(result)) {
+                    expirations.increment();
+                    log.info("库存预占已超时释放，预占ID：{}", reservationId);
+                    eventPublisher.publishEvent(new StockReservationExpiredEvent(reservationId));
+                }
+            }
+        } catch (Exception e) {
+            log.error("清理超时库存预占失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将累积的库存增量批量写回数据库，按商品ID顺序加锁
+     */
+    private void settle() {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        try {
+            List<?> result = redisTemplate.execute(SETTLE_BEGIN_SCRIPT,
+                    Arrays.asList(PENDING_KEY, SETTLING_KEY, SETTLING_AT_KEY, GENERATION_KEY),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(settleTimeout.toMillis()));
+            long status = toLong(result.get(0));
+            if (status <= 0) {
+                return;
+            }
+            if (status == 2) {
+                log.error("发现超时未完成的库存结算，增量已并回重新结算，数据库库存可能被重复扣减，等待对账修正");
+            }
+            for (int i = 1; i < result.size(); i += 2) {
+                int delta = (int) toLong(result.get(i + 1));
+                if (delta != 0) {
+                    deltas.put(Long.valueOf(String.valueOf(result.get(i))), delta);
+                }
+            }
+        } catch (Exception e) {
+            log.error("开始库存结算失败：{}", e.getMessage());
+            return;
+        }
+
+        Map<Long, Integer> failed = new HashMap<>();
+        try {
+            if (!deltas.isEmpty()) {
+                deadlockRetryTemplate.execute(() -> {
+                    failed.clear();
+                    for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+                        Long productId = entry.getKey();
+                        int delta = entry.getValue();
+                        if (delta > 0) {
+                            inventoryBucketService.increaseStock(productId, delta);
+                        } else if (!inventoryBucketService.decreaseStock(productId, -delta)) {
+                            // 数据库库存不足（通常是库存被直接改小），保留增量等待下次结算
+                            failed.put(productId, delta);
+                            continue;
+                        }
+                        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+                    }
+                    return null;
+                });
+            }
+            settlements.increment();
+            settledProducts.add(deltas.size() - failed.size());
+            if (!failed.isEmpty()) {
+                settlementFailures.add(failed.size());
+                log.error("部分库存增量无法写回数据库（库存不足），将在下次结算重试：{}", failed);
+            }
+            log.debug("库存结算完成，商品数：{}", deltas.size() - failed.size());
+        } catch (Exception e) {
+            // 事务已回滚，全部增量并回
+            failed.putAll(deltas);
+            settlementFailures.add(deltas.size());
+            log.error("库存结算失败，增量将在下次结算重试：{}", e.getMessage());
+        }
+        endSettlement(failed);
+    }
+
+    private void endSettlement(Map<Long, Integer> failed) {
+        List<String> args = new ArrayList<>(failed.size() * 2);
+        failed.forEach((productId, delta) -> {
+            args.add(String.valueOf(productId));
+            args.add(String.valueOf(delta));
+        });
+        try {
+            redisTemplate.execute(SETTLE_END_SCRIPT,
+                    Arrays.asList(PENDING_KEY, SETTLING_KEY, SETTLING_AT_KEY, GENERATION_KEY), args.toArray());
+        } catch (Exception e) {
+            log.error("结束库存结算失败，超时后由下次结算接管：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 逐批比对 Redis 可售库存与 product.stock + 待结算增量，检测并（可选）修正偏差
+     */
+    private void reconcile() {
+        try {
+            List<Long> productIds = new ArrayList<>();
+            for (Object key : redisTemplate.opsForHash().keys(AVAILABLE_KEY)) {
+                productIds.add(Long.valueOf(String.valueOf(key)));
+            }
+            Collections.sort(productIds);
+            for (int from = 0; from < productIds.size(); from += reconcileBatchSize) {
+                List<Long> batch = productIds.subList(from, Math.min(from + reconcileBatchSize, productIds.size()));
+                for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+                    if (reconcileBatch(batch)) {
+                        break;
+                    }
+                    sleep(settleInterval.toMillis());
+                }
+            }
+            reconciliations.increment();
+        } catch (Exception e) {
+            log.error("库存对账失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 结算代数未变化、对账已完成时返回 true
+     */
+    private boolean reconcileBatch(List<Long> productIds) {
+        String generation = generation();
+        Map<Long, Integer> stocks = new HashMap<>();
+        // 必须读主库：从库可能尚未应用刚提交的结算，代数校验通过后会把 Redis 修正为偏高的旧库存
+        for (Product product : RoutingContext.primary(() -> productMapper.selectByIds(productIds))) {
+            stocks.put(product.getId(), product.getStock() != null ? product.getStock() : 0);
+        }
+        List<String> args = new ArrayList<>(productIds.size() * 2 + 2);
+        args.add(generation);
+        args.add(autoCorrect ? "1" : "0");
+        for (Long productId : productIds) {
+            Integer stock = stocks.get(productId);
+            args.add(String.valueOf(productId));
+            args.add(stock != null ? String.valueOf(stock) : "-");
+        }
+        List<?> result = redisTemplate.execute(RECONCILE_SCRIPT,
+                Arrays.asList(AVAILABLE_KEY, PENDING_KEY, SETTLING_KEY, GENERATION_KEY), args.toArray());
+        if (!result.isEmpty() && toLong(result.get(0)) == -1) {
+            return false;
+        }
+        for (int i = 0; i < result.size(); i += 2) {
+            drifts.increment();
+            lastDriftAt.set(System.currentTimeMillis());
+            log.warn("库存对账发现偏差，商品ID：{}，Redis 比数据库多：{}{}", result.get(i), result.get(i + 1),
+                    autoCorrect ? "，已修正" : "");
+        }
+        return true;
+    }
+
+    private String generation() {
+        String generation = redisTemplate.opsForValue().get(GENERATION_KEY);
+        return generation != null ? generation : "0";
+    }
+
+    /**
+     * 在当前事务完成后执行；不在事务中时立即执行（onCommit）或不执行（仅回滚时执行的操作）
+     *
+     * @param onCommit true 表示提交后执行，false 表示回滚后执行
+     */
+    private static void afterCompletion(boolean onCommit, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit) {
+                action.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == (onCommit ? STATUS_COMMITTED : STATUS_ROLLED_BACK)) {
+                    try {
+                        action.run();
+                    } catch (Exception e) {
+                        log.error("库存预占事务完成后处理失败：{}", e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private long releaseHold(String reservationId) {
+        Long result = redisTemplate.execute(RELEASE_SCRIPT, releaseKeys(reservationId),
+                reservationId, "", String.valueOf(releasedMarkerTtl.toMillis()));
+        if (result != null && result == RELEASE_RELEASED) {
+            releases.increment();
+            log.info("库存预占已释放，预占ID：{}", reservationId);
+        }
+        return result != null ? result : 0;
+    }
+
+    private void restock(Map<Long, Integer> quantities) {
+        List<String> args = new ArrayList<>(quantities.size() * 2);
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            args.add(String.valueOf(entry.getKey()));
+            args.add(String.valueOf(entry.getValue()));
+        }
+        redisTemplate.execute(RESTOCK_SCRIPT, Arrays.asList(AVAILABLE_KEY, PENDING_KEY), args.toArray());
+    }
+
+    private static String holdKey(String reservationId) {
+        return HOLD_KEY_PREFIX + reservationId;
+    }
+
+    private static String releasedKey(String reservationId) {
+        return RELEASED_KEY_PREFIX + reservationId;
+    }
+
+    private static List<String> releaseKeys(String reservationId) {
+        return Arrays.asList(AVAILABLE_KEY, PENDING_KEY, holdKey(reservationId), HOLDS_KEY, releasedKey(reservationId));
+    }
+
+    private static long toLong(Object value) {
+        return Long.parseLong(String.valueOf(value));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -18,6 +18,12 @@ public interface CategoryMapper {
     @Select("SELECT * FROM category WHERE parent_id = 0 AND status = 1 AND is_deleted = 0 ORDER BY sort_order ASC")
     List<Category> findTopCategories();
 
+    /**
+     * 查询全部未删除的分类（含禁用），用于构建分类树
+     */
+    @Select("SELECT * FROM category WHERE is_deleted = 0")
+    List<Category> findAll();
+
     /**
      * 根据父分类ID查询子分类
      */
@@ -56,4 +62,42 @@ public interface CategoryMapper {
      */
     @Update("UPDATE category SET is_deleted = 1, updated_at = NOW() WHERE id = #{id}")
     int deleteById(@Param("id") Long id);
-} 
\ No newline at end of file
+
+    /**
+     * 新增分类后写入闭包：继承父分类的全部祖先，并加上自身
+     */
+    @Insert("INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT ancestor_id, #{id}, depth + 1 FROM category_closure WHERE descendant_id = #{parentId} " +
+            "UNION ALL SELECT #{id}, #{id}, 0")
+    int insertClosure(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * 判断 descendantId 是否为 ancestorId 自身或其后代
+     */
+    @Select("SELECT COUNT(*) FROM category_closure WHERE ancestor_id = #{ancestorId} AND descendant_id = #{descendantId}")
+    int isDescendant(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
+    /**
+     * 移动分类前断开子树与原祖先的关系（保留子树内部关系）
+     */
+    @Delete("DELETE c FROM category_closure c " +
+            "JOIN category_closure sub ON sub.descendant_id = c.descendant_id AND sub.ancestor_id = #{id} " +
+            "LEFT JOIN category_closure inner_node ON inner_node.ancestor_id = #{id} AND inner_node.descendant_id = c.ancestor_id " +
+            "WHERE inner_node.ancestor_id IS NULL")
+    int detachSubtree(@Param("id") Long id);
+
+    /**
+     * 把子树挂到新的父分类下：新父分类的每个祖先 × 子树中的每个节点
+     */
+    @Insert("INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT a.ancestor_id, s.descendant_id, a.depth + s.depth + 1 " +
+            "FROM category_closure a JOIN category_closure s ON s.ancestor_id = #{id} " +
+            "WHERE a.descendant_id = #{parentId}")
+    int attachSubtree(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * 删除分类（无子分类）的闭包记录
+     */
+    @Delete("DELETE FROM category_closure WHERE descendant_id = #{id}")
+    int deleteClosure(@Param("id") Long id);
+}
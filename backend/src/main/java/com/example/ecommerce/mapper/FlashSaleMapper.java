@@ -0,0 +1,44 @@
+package com.example.ecommerce.mapper;
+
+import com.example.ecommerce.entity.FlashSale;
+import org.apache.ibatis.annotations.*;
+import java.util.List;
+
+/**
+ * 秒杀活动Mapper接口
+ */
+@Mapper
+public interface FlashSaleMapper {
+
+    /**
+     * 插入秒杀活动
+     */
+    @Insert("INSERT INTO flash_sale (product_id, price, total_stock, sold, per_user_limit, start_time, end_time, status, created_at, updated_at, is_deleted) " +
+            "VALUES (#{productId}, #{price}, #{totalStock}, 0, #{perUserLimit}, #{startTime}, #{endTime}, 1, NOW(), NOW(), 0)")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(FlashSale flashSale);
+
+    /**
+     * 根据ID查询秒杀活动
+     */
+    @Select("SELECT * FROM flash_sale WHERE id = #{id} AND is_deleted = 0")
+    FlashSale selectById(@Param("id") Long id);
+
+    /**
+     * 查询未关闭且未结束的秒杀活动（启动时预热）
+     */
+    @Select("SELECT * FROM flash_sale WHERE status = 1 AND is_deleted = 0 AND end_time > NOW()")
+    List<FlashSale> findActive();
+
+    /**
+     * 增加已售数量（每批订单一次）
+     */
+    @Update("UPDATE flash_sale SET sold = sold + #{quantity} WHERE id = #{id}")
+    int addSold(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * 关闭秒杀活动，返回是否由本次调用关闭
+     */
+    @Update("UPDATE flash_sale SET status = 0 WHERE id = #{id} AND status = 1")
+    int close(@Param("id") Long id);
+}
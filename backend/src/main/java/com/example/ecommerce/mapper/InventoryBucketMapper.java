@@ -0,0 +1,56 @@
+package com.example.ecommerce.mapper;
+
+import com.example.ecommerce.entity.InventoryBucket;
+import org.apache.ibatis.annotations.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存分桶Mapper接口
+ */
+@Mapper
+public interface InventoryBucketMapper {
+
+    /**
+     * 从指定分桶扣减库存，分桶库存不足时不更新
+     */
+    @Update("UPDATE inventory_bucket SET stock = stock - #{quantity} " +
+            "WHERE product_id = #{productId} AND bucket_no = #{bucketNo} AND stock >= #{quantity}")
+    int decreaseStock(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    /**
+     * 向指定分桶增加库存
+     */
+    @Update("UPDATE inventory_bucket SET stock = stock + #{quantity} WHERE product_id = #{productId} AND bucket_no = #{bucketNo}")
+    int increaseStock(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    /**
+     * 查询商品的全部分桶（不加锁），用于判断是否需要重新均衡
+     */
+    @Select("SELECT * FROM inventory_bucket WHERE product_id = #{productId} ORDER BY bucket_no")
+    List<InventoryBucket> findByProductId(@Param("productId") Long productId);
+
+    /**
+     * 按分桶序号顺序锁定商品的全部分桶
+     */
+    @Select("SELECT * FROM inventory_bucket WHERE product_id = #{productId} ORDER BY bucket_no FOR UPDATE")
+    List<InventoryBucket> lockByProductId(@Param("productId") Long productId);
+
+    /**
+     * 写入各分桶库存（不存在时插入）
+     *
+     * @param stocks 分桶序号 -> 库存
+     */
+    @Insert("<script>" +
+            "INSERT INTO inventory_bucket (product_id, bucket_no, stock) VALUES " +
+            "<foreach collection='stocks' index='bucketNo' item='stock' separator=','>(#{productId}, #{bucketNo}, #{stock})</foreach>" +
+            " ON DUPLICATE KEY UPDATE stock = VALUES(stock)" +
+            "</script>")
+    int upsertStocks(@Param("productId") Long productId, @Param("stocks") Map<Integer, Integer> stocks);
+
+    /**
+     * 删除序号不小于 fromBucketNo 的分桶（减少分桶数或取消分桶）
+     */
+    @Delete("DELETE FROM inventory_bucket WHERE product_id = #{productId} AND bucket_no >= #{fromBucketNo}")
+    int deleteFrom(@Param("productId") Long productId, @Param("fromBucketNo") int fromBucketNo);
+}
@@ -109,12 +109,31 @@ public interface OrderMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Order order);
 
+    /**
+     * 批量插入订单，回填各订单ID
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders (order_number, user_id, total_amount, status, address_id, receiver_name, receiver_phone, receiver_address, remarks, created_at, updated_at, is_deleted) VALUES " +
+            "<foreach collection='orders' item='order' separator=','>" +
+            "(#{order.orderNumber}, #{order.userId}, #{order.totalAmount}, #{order.status}, #{order.addressId}, #{order.receiverName}, " +
+            "#{order.receiverPhone}, #{order.receiverAddress}, #{order.remarks}, NOW(), NOW(), 0)" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int batchInsert(@Param("orders") List<Order> orders);
+
     /**
      * 根据ID查询订单
      */
     @Select("SELECT * FROM orders WHERE id = #{id} AND is_deleted = 0")
     Order selectById(@Param("id") Long id);
 
+    /**
+     * 按ID顺序分批读取未删除的订单ID，用于构建ID布隆过滤器
+     */
+    @Select("SELECT id FROM orders WHERE is_deleted = 0 AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
     /**
      * 根据ID更新订单
      */
@@ -123,6 +142,12 @@ public interface OrderMapper {
             "receiver_address = #{receiverAddress}, remarks = #{remarks}, updated_at = NOW() WHERE id = #{id} AND is_deleted = 0")
     int updateById(Order order);
 
+    /**
+     * 取消仍处于待支付状态的订单（库存预占超时）
+     */
+    @Update("UPDATE orders SET status = 5, updated_at = NOW() WHERE order_number = #{orderNumber} AND status = 1 AND is_deleted = 0")
+    int cancelUnpaid(@Param("orderNumber") String orderNumber);
+
     /**
      * 根据ID删除订单（逻辑删除）
      */
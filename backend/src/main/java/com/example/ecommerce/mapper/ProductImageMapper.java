@@ -16,6 +16,16 @@ public interface ProductImageMapper {
     @Select("SELECT * FROM product_image WHERE product_id = #{productId} AND is_deleted = 0 ORDER BY sort_order ASC")
     List<ProductImage> findByProductId(@Param("productId") Long productId);
 
+    /**
+     * 批量查询多个商品的图片，按商品ID和排序号排列
+     */
+    @Select("<script>" +
+            "SELECT * FROM product_image WHERE is_deleted = 0 AND product_id IN " +
+            "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>#{productId}</foreach> " +
+            "ORDER BY product_id ASC, sort_order ASC" +
+            "</script>")
+    List<ProductImage> findByProductIds(@Param("productIds") List<Long> productIds);
+
     /**
      * 插入商品图片
      */
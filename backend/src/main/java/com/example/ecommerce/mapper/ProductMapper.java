@@ -1,9 +1,12 @@
 package com.example.ecommerce.mapper;
 
+import com.example.ecommerce.common.ProductCursor;
 import com.example.ecommerce.dto.ProductDTO;
 import com.example.ecommerce.entity.Product;
 import org.apache.ibatis.annotations.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品Mapper接口
@@ -12,18 +15,52 @@ import java.util.List;
 public interface ProductMapper {
 
     /**
-     * 分页查询商品（带分类名称）
+     * 名称/描述全文匹配（使用 ft_name_desc 全文索引，ngram 分词），同时作为相关度得分
      */
-    @Select("<script>" +
-            "SELECT p.id, p.name, p.description, p.category_id, c.name as category_name, " +
-            "p.price, p.original_price, p.stock, p.main_image, p.brand, p.status, p.sales_count FROM product p " +
-            "LEFT JOIN category c ON p.category_id = c.id " +
-            "WHERE p.is_deleted = 0 " +
-            "<if test='query.name != null and query.name != &quot;&quot;'>" +
+    String FULLTEXT_MATCH =
+            "MATCH(p.name, p.description) AGAINST(#{query.name} " +
+            "<choose>" +
+            "<when test='query.searchMode.name() == \"BOOLEAN\"'>IN BOOLEAN MODE</when>" +
+            "<otherwise>IN NATURAL LANGUAGE MODE</otherwise>" +
+            "</choose>) ";
+
+    /**
+     * 商品总库存：分桶商品为各分桶库存之和（按主键范围读取，只对分桶商品执行），否则为 stock 字段
+     */
+    String STOCK_COLUMN =
+            "CASE WHEN p.stock_buckets > 0 " +
+            "THEN (SELECT COALESCE(SUM(b.stock), 0) FROM inventory_bucket b WHERE b.product_id = p.id) " +
+            "ELSE p.stock END AS stock";
+
+    /**
+     * 商品实体字段（库存为总库存）
+     */
+    String PRODUCT_COLUMNS =
+            "p.id, p.name, p.description, p.category_id, p.price, " + STOCK_COLUMN + ", p.main_image, p.brand, " +
+            "p.status, p.sales_count, p.stock_buckets, p.created_at, p.updated_at, p.is_deleted";
+
+    /**
+     * 商品列表通用筛选条件（列表、游标、计数查询共用）
+     */
+    String FILTER_CONDITIONS =
+            "<choose>" +
+            "<when test='query.fulltextSearch()'>" +
+            "AND " + FULLTEXT_MATCH +
+            "</when>" +
+            "<when test='query.name != null and query.name != &quot;&quot;'>" +
             "AND p.name LIKE CONCAT('%', #{query.name}, '%') " +
-            "</if>" +
+            "</when>" +
+            "</choose>" +
             "<if test='query.categoryId != null'>" +
-            "AND p.category_id = #{query.categoryId} " +
+            "<choose>" +
+            "<when test='query.includeDescendants'>" +
+            "AND p.category_id IN (SELECT cc.descendant_id FROM category_closure cc WHERE cc.ancestor_id = #{query.categoryId}) " +
+            "</when>" +
+            "<otherwise>AND p.category_id = #{query.categoryId} </otherwise>" +
+            "</choose>" +
+            "</if>" +
+            "<if test='query.brand != null and query.brand != &quot;&quot;'>" +
+            "AND p.brand = #{query.brand} " +
             "</if>" +
             "<if test='query.status != null'>" +
             "AND p.status = #{query.status} " +
@@ -33,9 +70,25 @@ public interface ProductMapper {
             "</if>" +
             "<if test='query.maxPrice != null'>" +
             "AND p.price &lt;= #{query.maxPrice} " +
-            "</if>" +
+            "</if>";
+
+    /**
+     * 分页查询商品（带分类名称）
+     */
+    @Select("<script>" +
+            "SELECT p.id, p.name, p.description, p.category_id, c.name as category_name, " +
+            "p.price, p.original_price, " + STOCK_COLUMN + ", p.main_image, p.brand, p.status, p.sales_count, p.created_at FROM product p " +
+            "LEFT JOIN category c ON p.category_id = c.id " +
+            "WHERE p.is_deleted = 0 " +
+            FILTER_CONDITIONS +
             "ORDER BY " +
             "<choose>" +
+            "<when test='query.relevanceSort()'>" +
+            // 相关度按销量做对数加权，销量相同的结果仍以相关度为主
+            FULLTEXT_MATCH + "* (1 + LOG10(1 + p.sales_count)) DESC, p.sales_count DESC, p.id DESC " +
+            "</when>" +
+            "<otherwise>" +
+            "<choose>" +
             "<when test='query.sortBy == \"price\"'>p.price</when>" +
             "<when test='query.sortBy == \"sales_count\"'>p.sales_count</when>" +
             "<otherwise>p.created_at</otherwise>" +
@@ -43,21 +96,76 @@ public interface ProductMapper {
             "<choose>" +
             "<when test='query.sortOrder == \"asc\"'>ASC</when>" +
             "<otherwise>DESC</otherwise>" +
+            "</choose>, p.id " +
+            "<choose>" +
+            "<when test='query.sortOrder == \"asc\"'>ASC</when>" +
+            "<otherwise>DESC</otherwise>" +
             "</choose> " +
+            "</otherwise>" +
+            "</choose>" +
             "LIMIT #{offset}, #{limit}" +
             "</script>")
     List<ProductDTO.ProductListResponse> findProductsWithCategory(@Param("query") ProductDTO.ProductQuery query, @Param("offset") int offset, @Param("limit") int limit);
 
+    /**
+     * 游标分页查询商品（带分类名称）
+     * 按 (排序字段, id) 从上一页最后一行之后继续扫描，避免 LIMIT offset 随页码加深而变慢
+     */
+    @Select("<script>" +
+            "SELECT p.id, p.name, p.description, p.category_id, c.name as category_name, " +
+            "p.price, p.original_price, " + STOCK_COLUMN + ", p.main_image, p.brand, p.status, p.sales_count, p.created_at FROM product p " +
+            "LEFT JOIN category c ON p.category_id = c.id " +
+            "WHERE p.is_deleted = 0 " +
+            FILTER_CONDITIONS +
+            "<bind name='cmp' value='cursor.sortOrder == \"asc\" ? \"&gt;\" : \"&lt;\"'/>" +
+            "<choose>" +
+            "<when test='cursor.sortBy == \"price\"'>" +
+            "AND (p.price ${cmp} #{cursor.price} OR (p.price = #{cursor.price} AND p.id ${cmp} #{cursor.id})) " +
+            "</when>" +
+            "<when test='cursor.sortBy == \"sales_count\"'>" +
+            "AND (p.sales_count ${cmp} #{cursor.salesCount} OR (p.sales_count = #{cursor.salesCount} AND p.id ${cmp} #{cursor.id})) " +
+            "</when>" +
+            "<otherwise>" +
+            "AND (p.created_at ${cmp} #{cursor.createdAt} OR (p.created_at = #{cursor.createdAt} AND p.id ${cmp} #{cursor.id})) " +
+            "</otherwise>" +
+            "</choose>" +
+            "ORDER BY " +
+            "<choose>" +
+            "<when test='cursor.sortBy == \"price\"'>p.price</when>" +
+            "<when test='cursor.sortBy == \"sales_count\"'>p.sales_count</when>" +
+            "<otherwise>p.created_at</otherwise>" +
+            "</choose> " +
+            "<choose>" +
+            "<when test='cursor.sortOrder == \"asc\"'>ASC, p.id ASC</when>" +
+            "<otherwise>DESC, p.id DESC</otherwise>" +
+            "</choose> " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<ProductDTO.ProductListResponse> findProductsAfterCursor(@Param("query") ProductDTO.ProductQuery query, @Param("cursor") ProductCursor cursor, @Param("limit") int limit);
+
     /**
      * 根据ID查询商品详情（带分类名称）
      */
     @Select("SELECT p.id, p.name, p.description, p.category_id, c.name as category_name, " +
-            "p.price, p.original_price, p.stock, p.main_image, p.brand, p.status, " +
+            "p.price, p.original_price, " + STOCK_COLUMN + ", p.main_image, p.brand, p.status, " +
             "p.sales_count, p.created_at, p.updated_at FROM product p " +
             "LEFT JOIN category c ON p.category_id = c.id " +
             "WHERE p.id = #{id} AND p.is_deleted = 0")
     ProductDTO.ProductResponse findProductDetailById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查询商品详情（带分类名称），不保证返回顺序
+     */
+    @Select("<script>" +
+            "SELECT p.id, p.name, p.description, p.category_id, c.name as category_name, " +
+            "p.price, p.original_price, " + STOCK_COLUMN + ", p.main_image, p.brand, p.status, " +
+            "p.sales_count, p.created_at, p.updated_at FROM product p " +
+            "LEFT JOIN category c ON p.category_id = c.id " +
+            "WHERE p.is_deleted = 0 AND p.id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<ProductDTO.ProductResponse> findProductDetailsByIds(@Param("ids") List<Long> ids);
+
     /**
      * 更新商品销量
      */
@@ -65,39 +173,105 @@ public interface ProductMapper {
     int updateSalesCount(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
     /**
-     * 减少商品库存
+     * 减少商品库存（不分桶的商品）
      */
-    @Update("UPDATE product SET stock = stock - #{quantity} WHERE id = #{productId} AND stock >= #{quantity}")
+    @Update("UPDATE product SET stock = stock - #{quantity} WHERE id = #{productId} AND stock >= #{quantity} AND stock_buckets = 0")
     int decreaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
     /**
-     * 增加商品库存
+     * 按商品ID升序锁定待扣减库存的商品行
+     * 所有批量扣减都按同一顺序加锁，购物车商品有交叉的并发订单不会互相等待成环
+     */
+    @Select("<script>" +
+            "SELECT id, name, stock FROM product WHERE is_deleted = 0 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " ORDER BY id FOR UPDATE" +
+            "</script>")
+    List<Product> lockStocks(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量减少商品库存（一条语句），库存不足的商品不会被更新
+     *
+     * @param quantities 商品ID -> 扣减数量
+     * @return 实际扣减成功的商品数，小于 quantities.size() 说明有商品库存不足
+     */
+    @Update("<script>" +
+            "UPDATE product SET stock = stock - " +
+            "<foreach collection='quantities' index='id' item='quantity' open='CASE id ' close=' END'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "WHERE id IN " +
+            "<foreach collection='quantities' index='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND stock_buckets = 0 AND stock &gt;= " +
+            "<foreach collection='quantities' index='id' item='quantity' open='CASE id ' close=' END'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "</script>")
+    int decreaseStocks(@Param("quantities") Map<Long, Integer> quantities);
+
+    /**
+     * 增加商品库存（不分桶的商品）
      */
-    @Update("UPDATE product SET stock = stock + #{quantity} WHERE id = #{productId}")
+    @Update("UPDATE product SET stock = stock + #{quantity} WHERE id = #{productId} AND stock_buckets = 0")
     int increaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
     /**
      * 插入商品
      */
-    @Insert("INSERT INTO product (name, description, category_id, price, stock, main_image, status, sales_count, created_at, updated_at, is_deleted) " +
-            "VALUES (#{name}, #{description}, #{categoryId}, #{price}, #{stock}, #{mainImage}, #{status}, #{salesCount}, NOW(), NOW(), 0)")
+    @Insert("INSERT INTO product (name, description, category_id, price, stock, main_image, brand, status, sales_count, created_at, updated_at, is_deleted) " +
+            "VALUES (#{name}, #{description}, #{categoryId}, #{price}, #{stock}, #{mainImage}, #{brand}, #{status}, #{salesCount}, NOW(), NOW(), 0)")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Product product);
 
     /**
      * 根据ID查询商品
      */
-    @Select("SELECT * FROM product WHERE id = #{id} AND is_deleted = 0")
+    @Select("SELECT " + PRODUCT_COLUMNS + " FROM product p WHERE p.id = #{id} AND p.is_deleted = 0")
     Product selectById(@Param("id") Long id);
 
     /**
-     * 根据ID更新商品
+     * 根据ID批量查询商品，不保证返回顺序
+     */
+    @Select("<script>" +
+            "SELECT " + PRODUCT_COLUMNS + " FROM product p WHERE p.is_deleted = 0 AND p.id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Product> selectByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 根据ID更新商品（分桶商品的库存在分桶中，不修改 stock 字段）
      */
     @Update("UPDATE product SET name = #{name}, description = #{description}, category_id = #{categoryId}, " +
-            "price = #{price}, stock = #{stock}, main_image = #{mainImage}, status = #{status}, " +
+            "price = #{price}, stock = IF(stock_buckets > 0, stock, #{stock}), main_image = #{mainImage}, brand = #{brand}, status = #{status}, " +
             "sales_count = #{salesCount}, updated_at = NOW() WHERE id = #{id} AND is_deleted = 0")
     int updateById(Product product);
 
+    /**
+     * 刷新商品更新时间（图片等关联数据变更时），使详情的 Last-Modified 随之变化
+     */
+    @Update("UPDATE product SET updated_at = NOW() WHERE id = #{id} AND is_deleted = 0")
+    int touch(@Param("id") Long id);
+
+    /**
+     * 锁定商品行，用于切换库存分桶
+     */
+    @Select("SELECT id, stock, stock_buckets FROM product WHERE id = #{id} AND is_deleted = 0 FOR UPDATE")
+    Product lockForStockBuckets(@Param("id") Long id);
+
+    /**
+     * 设置库存分桶数及 stock 字段（分桶后为0，取消分桶时写回总库存）
+     */
+    @Update("UPDATE product SET stock_buckets = #{stockBuckets}, stock = #{stock} WHERE id = #{id}")
+    int updateStockBuckets(@Param("id") Long id, @Param("stockBuckets") int stockBuckets, @Param("stock") int stock);
+
+    /**
+     * 查询商品的库存分桶数，商品不存在时返回空
+     */
+    @Select("SELECT stock_buckets FROM product WHERE id = #{id} AND is_deleted = 0")
+    Integer selectStockBuckets(@Param("id") Long id);
+
+    /**
+     * 查询全部分桶商品（id、stock_buckets）
+     */
+    @Select("SELECT id, stock_buckets FROM product WHERE stock_buckets > 0 AND is_deleted = 0")
+    List<Product> findBucketedProducts();
+
     /**
      * 根据ID删除商品（逻辑删除）
      */
@@ -109,21 +283,42 @@ public interface ProductMapper {
      */
     @Select("<script>" +
             "SELECT COUNT(*) FROM product p WHERE p.is_deleted = 0 " +
-            "<if test='query.name != null and query.name != &quot;&quot;'>" +
-            "AND p.name LIKE CONCAT('%', #{query.name}, '%') " +
-            "</if>" +
-            "<if test='query.categoryId != null'>" +
-            "AND p.category_id = #{query.categoryId} " +
-            "</if>" +
-            "<if test='query.status != null'>" +
-            "AND p.status = #{query.status} " +
-            "</if>" +
-            "<if test='query.minPrice != null'>" +
-            "AND p.price &gt;= #{query.minPrice} " +
-            "</if>" +
-            "<if test='query.maxPrice != null'>" +
-            "AND p.price &lt;= #{query.maxPrice} " +
-            "</if>" +
+            FILTER_CONDITIONS +
             "</script>")
     long countProducts(@Param("query") ProductDTO.ProductQuery query);
+
+    /**
+     * 按ID顺序分批读取商品，用于构建进程内搜索索引
+     */
+    @Select("SELECT id, name, brand, category_id, price, status, sales_count, created_at FROM product " +
+            "WHERE is_deleted = 0 AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Product> findProductsForIndex(@Param("lastId") Long lastId, @Param("limit") int limit);
+
+    /**
+     * 按ID顺序分批读取未删除的商品ID，用于构建ID布隆过滤器
+     */
+    @Select("SELECT id FROM product WHERE is_deleted = 0 AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 查询销量前 limit 的在售商品（分类榜单包含全部子分类），用于重建热销榜单
+     */
+    @Select("<script>" +
+            "SELECT id, category_id, sales_count FROM product WHERE is_deleted = 0 AND status = 1 " +
+            "<if test='categoryId != null'>" +
+            "AND category_id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = #{categoryId}) " +
+            "</if>" +
+            "ORDER BY sales_count DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Product> findTopSellers(@Param("categoryId") Long categoryId, @Param("limit") int limit);
+
+    /**
+     * 有上限的商品计数：最多扫描 limit 行即停止
+     */
+    @Select("<script>" +
+            "SELECT COUNT(*) FROM (SELECT 1 FROM product p WHERE p.is_deleted = 0 " +
+            FILTER_CONDITIONS +
+            "LIMIT #{limit}) t" +
+            "</script>")
+    long countProductsCapped(@Param("query") ProductDTO.ProductQuery query, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.example.ecommerce.order;
+
+import com.example.ecommerce.common.BatchWriter;
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.common.TicketStore;
+import com.example.ecommerce.dto.OrderDTO;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.dto.TicketDTO;
+import com.example.ecommerce.inventory.StockReservationService;
+import com.example.ecommerce.service.OrderService;
+import com.example.ecommerce.service.ProductService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 异步下单队列（先受理后处理）
+ * <p>
+ * 请求校验通过后分配订单号、进入有界队列并立即返回下单凭证，不占用请求线程等待下单事务；
+ * 若干写入线程从队列中按微批取出订单，每批在一个事务中批量插入订单和订单项、一次扣减整批库存（组提交，见 {@link BatchWriter}）。
+ * 整批失败（如某个订单库存不足）时逐个重试，失败的订单把原因写入凭证（见 {@link TicketStore}）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderIntakeQueue implements StatsProvider {
+
+    private static final String TICKET_KEY_PREFIX = "order:ticket:";
+
+    private final OrderService orderService;
+
+    private final ProductService productService;
+
+    private final StockReservationService stockReservationService;
+
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.order.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order.async.queue-capacity:5000}")
+    private int queueCapacity;
+
+    @Value("${app.order.async.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${app.order.async.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 取到第一个订单后继续等待凑批的最长时间
+     */
+    @Value("${app.order.async.linger:5ms}")
+    private Duration linger;
+
+    @Value("${app.order.async.ticket-ttl:30m}")
+    private Duration ticketTtl;
+
+    private TicketStore ticketStore;
+
+    private BatchWriter<OrderDTO.QueuedOrder, Long> writer;
+
+    @PostConstruct
+    public void start() {
+        ticketStore = new TicketStore(redisTemplate, TICKET_KEY_PREFIX, ticketTtl);
+        if (!enabled) {
+            return;
+        }
+        writer = new BatchWriter<>("order-intake-writer", queueCapacity, writerThreads, batchSize, linger,
+                orders -> deadlockRetryTemplate.execute(() -> orderService.createOrders(orders)),
+                (order, orderId) -> ticketStore.succeed(order.getUserId(), order.getOrderNumber(), orderId),
+                this::fail);
+        writer.start();
+        log.info("异步下单已开启，队列容量：{}，写入线程：{}，批大小：{}", queueCapacity, writerThreads, batchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * 校验并受理下单请求
+     *
+     * @return 下单凭证（凭证ID即订单号）
+     */
+    public TicketDTO.TicketResponse submit(Long userId, OrderDTO.CreateOrderRequest request) {
+        if (!enabled) {
+            throw new RuntimeException("异步下单未开启");
+        }
+        validate(request);
+
+        OrderDTO.QueuedOrder queuedOrder = new OrderDTO.QueuedOrder();
+        queuedOrder.setOrderNumber(orderService.nextOrderNumber());
+        queuedOrder.setUserId(userId);
+        queuedOrder.setRequest(request);
+
+        TicketDTO.TicketResponse ticket = ticketStore.enqueue(userId, queuedOrder.getOrderNumber(),
+                () -> writer.submit(queuedOrder));
+        if (ticket == null) {
+            throw new RuntimeException("下单人数过多，请稍后重试");
+        }
+        return ticket;
+    }
+
+    /**
+     * 查询下单凭证，不存在（已过期）或不属于该用户时抛出异常
+     */
+    public TicketDTO.TicketResponse getTicket(Long userId, String ticketId) {
+        TicketDTO.TicketResponse ticket = ticketStore.get(userId, ticketId);
+        if (ticket == null) {
+            throw new RuntimeException("下单凭证不存在或已过期");
+        }
+        return ticket;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "orderIntake";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (writer != null) {
+            stats.putAll(writer.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 入队前校验商品（读商品缓存，不访问数据库）；库存以写入时的扣减结果为准，这里只拦截明显不足的请求
+     */
+    private void validate(OrderDTO.CreateOrderRequest request) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderDTO.OrderItemRequest itemRequest : request.getOrderItems()) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        Map<Long, ProductDTO.ProductResponse> products = new HashMap<>();
+        for (ProductDTO.ProductResponse product : productService.getProductDetails(new ArrayList<>(quantities.keySet()))) {
+            products.put(product.getId(), product);
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductDTO.ProductResponse product = products.get(entry.getKey());
+            if (product == null || product.getStatus() != 1) {
+                throw new RuntimeException("商品不存在或已下架：" + entry.getKey());
+            }
+            if (!stockReservationService.isEnabled() && product.getStock() < entry.getValue()) {
+                throw new RuntimeException("商品库存不足：" + product.getName());
+            }
+        }
+    }
+
+    private void fail(OrderDTO.QueuedOrder order, Exception e) {
+        log.warn("异步下单失败，订单号：{}，原因：{}", order.getOrderNumber(), e.getMessage());
+        ticketStore.fail(order.getUserId(), order.getOrderNumber(), e.getMessage());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ecommerce.search;
+
+import java.util.Arrays;
+
+/**
+ * 以内部文档ID为下标的位图
+ * 与 java.util.BitSet 相比提供不分配内存的交集计数，用于分面统计
+ */
+final class DocBitSet {
+
+    private long[] words;
+
+    DocBitSet() {
+        this.words = new long[16];
+    }
+
+    private DocBitSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * 由升序文档ID数组构建位图
+     */
+    static DocBitSet of(int[] docs) {
+        DocBitSet bits = new DocBitSet(new long[docs.length == 0 ? 1 : (docs[docs.length - 1] >>> 6) + 1]);
+        for (int doc : docs) {
+            bits.words[doc >>> 6] |= 1L << doc;
+        }
+        return bits;
+    }
+
+    void set(int doc) {
+        int index = doc >>> 6;
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length << 1));
+        }
+        words[index] |= 1L << doc;
+    }
+
+    void clear(int doc) {
+        int index = doc >>> 6;
+        if (index < words.length) {
+            words[index] &= ~(1L << doc);
+        }
+    }
+
+    boolean get(int doc) {
+        int index = doc >>> 6;
+        return index < words.length && (words[index] & (1L << doc)) != 0;
+    }
+
+    DocBitSet copy() {
+        return new DocBitSet(words.clone());
+    }
+
+    /**
+     * 原地求交集
+     */
+    void and(DocBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= other.words[i];
+        }
+        Arrays.fill(words, common, words.length, 0L);
+    }
+
+    /**
+     * 原地求并集
+     */
+    void or(DocBitSet other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 与另一位图交集的元素个数，不生成中间结果
+     */
+    int andCardinality(DocBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        int count = 0;
+        for (int i = 0; i < common; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * 返回不小于 from 的下一个已置位文档ID，不存在时返回 -1
+     */
+    int nextSetBit(int from) {
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+}
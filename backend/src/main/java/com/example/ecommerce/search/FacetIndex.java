@@ -0,0 +1,83 @@
+package com.example.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个分面维度的索引：每个取值对应一个文档位图
+ * 非线程安全，由 ProductSearchIndex 的读写锁保护
+ */
+final class FacetIndex {
+
+    private final Map<String, DocBitSet> values = new HashMap<>();
+
+    private String[] docValues = new String[1024];
+
+    /**
+     * 设置文档的取值，value 为 null 表示该文档不参与此分面
+     */
+    void set(int doc, String value) {
+        if (doc >= docValues.length) {
+            docValues = Arrays.copyOf(docValues, Math.max(doc + 1, docValues.length + (docValues.length >> 1)));
+        }
+        String old = docValues[doc];
+        if (old != null) {
+            if (old.equals(value)) {
+                return;
+            }
+            DocBitSet bits = values.get(old);
+            bits.clear(doc);
+            if (bits.cardinality() == 0) {
+                values.remove(old);
+            }
+        }
+        docValues[doc] = value;
+        if (value != null) {
+            values.computeIfAbsent(value, v -> new DocBitSet()).set(doc);
+        }
+    }
+
+    void clear(int doc) {
+        set(doc, null);
+    }
+
+    String valueOf(int doc) {
+        return doc < docValues.length ? docValues[doc] : null;
+    }
+
+    /**
+     * 取值对应的文档位图，不存在时返回 null
+     */
+    DocBitSet get(String value) {
+        return values.get(value);
+    }
+
+    /**
+     * 统计 base 中每个取值的文档数，计数为 0 的取值不返回
+     */
+    List<Count> counts(DocBitSet base) {
+        List<Count> counts = new ArrayList<>();
+        for (Map.Entry<String, DocBitSet> entry : values.entrySet()) {
+            int count = base.andCardinality(entry.getValue());
+            if (count > 0) {
+                counts.add(new Count(entry.getKey(), count));
+            }
+        }
+        return counts;
+    }
+
+    static final class Count {
+
+        final String value;
+
+        final int count;
+
+        Count(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.ecommerce.search;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表：按升序存放文档ID的原始 int 数组
+ * 删除时只把该位置标记为已删除（最高位置 1），不移动数组；已删除的位置超过四分之一时再整体压缩，
+ * 删除均摊为 O(log n)。同一文档重新加入时直接恢复原位置
+ * 非线程安全，由 ProductSearchIndex 的读写锁保护
+ */
+final class IntPostings {
+
+    static final int[] EMPTY = new int[0];
+
+    private static final int DELETED = Integer.MIN_VALUE;
+
+    private int[] docs = new int[4];
+
+    private int size;
+
+    // 已标记删除的位置数
+    private int deleted;
+
+    /**
+     * 插入文档ID，保持升序；新文档ID通常最大，追加为 O(1)
+     */
+    void add(int doc) {
+        if (size > 0 && docAt(size - 1) >= doc) {
+            int index = find(0, size, doc);
+            if (index < 0) {
+                insertAt(-index - 1, doc);
+            } else if (docs[index] < 0) {
+                docs[index] = doc;
+                deleted--;
+            }
+            return;
+        }
+        ensureCapacity();
+        docs[size++] = doc;
+    }
+
+    void remove(int doc) {
+        int index = find(0, size, doc);
+        if (index >= 0 && docs[index] >= 0) {
+            docs[index] |= DELETED;
+            deleted++;
+            if (deleted * 4 > size) {
+                compact();
+            }
+        }
+    }
+
+    boolean contains(int doc) {
+        int index = find(0, size, doc);
+        return index >= 0 && docs[index] >= 0;
+    }
+
+    boolean isEmpty() {
+        return size == deleted;
+    }
+
+    int size() {
+        return size - deleted;
+    }
+
+    int[] toArray() {
+        if (deleted == 0) {
+            return Arrays.copyOf(docs, size);
+        }
+        int[] result = new int[size - deleted];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (docs[i] >= 0) {
+                result[count++] = docs[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从下标 from 开始查找第一个不小于 target 的位置（指数跳跃 + 二分），用于有序遍历时的成员判断
+     */
+    int seek(int from, int target) {
+        int bound = 1;
+        int low = from;
+        while (from + bound < size && docAt(from + bound) < target) {
+            low = from + bound;
+            bound <<= 1;
+        }
+        int high = Math.min(from + bound, size);
+        int index = find(low, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 已删除的位置最高位为 1，不会与任何文档ID相等
+     */
+    boolean matchesAt(int index, int doc) {
+        return index < size && docs[index] == doc;
+    }
+
+    /**
+     * 保留 candidates 中出现在 a 或 b 里的文档（a、b 可为 null），candidates 须升序
+     */
+    static int[] retain(int[] candidates, IntPostings a, IntPostings b) {
+        int[] result = new int[candidates.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        for (int doc : candidates) {
+            boolean matched = false;
+            if (a != null) {
+                i = a.seek(i, doc);
+                matched = a.matchesAt(i, doc);
+            }
+            if (!matched && b != null) {
+                j = b.seek(j, doc);
+                matched = b.matchesAt(j, doc);
+            }
+            if (matched) {
+                result[count++] = doc;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 两个升序数组求并集
+     */
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else {
+                result[count++] = b[j++];
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int docAt(int index) {
+        return docs[index] & ~DELETED;
+    }
+
+    /**
+     * 在 [from, to) 中二分查找文档ID（忽略删除标记），返回值约定同 Arrays.binarySearch
+     */
+    private int find(int from, int to, int doc) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = docAt(mid);
+            if (value < doc) {
+                low = mid + 1;
+            } else if (value > doc) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (docs[i] >= 0) {
+                docs[count++] = docs[i];
+            }
+        }
+        size = count;
+        deleted = 0;
+    }
+
+    private void insertAt(int index, int doc) {
+        ensureCapacity();
+        System.arraycopy(docs, index, docs, index + 1, size - index);
+        docs[index] = doc;
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length + (docs.length >> 1) + 1);
+        }
+    }
+}
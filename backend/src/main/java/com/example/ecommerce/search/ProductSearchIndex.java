@@ -0,0 +1,764 @@
+package com.example.ecommerce.search;
+
+import com.example.ecommerce.cache.CategoryTreeCache;
+import com.example.ecommerce.cache.ProductChangeBroadcaster;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.datasource.RoutingContext;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.event.ProductChangedEvent;
+import com.example.ecommerce.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名称/品牌的进程内倒排索引
+ * 启动时从 product 表全量构建，之后根据商品变更广播增量更新；
+ * 分类、品牌、价格、状态过滤及排序均在内存中完成，只返回排好序的商品ID。
+ * 同时按品牌、价格区间、分类维护分面位图，分面统计只需位图求交
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex implements StatsProvider {
+
+    private static final String NAME = "n";
+
+    private static final String BRAND = "b";
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ProductMapper productMapper;
+
+    private final ProductChangeBroadcaster changeBroadcaster;
+
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IntPostings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> docIds = new HashMap<>();
+
+    private final DocBitSet live = new DocBitSet();
+
+    private final FacetIndex brandFacet = new FacetIndex();
+
+    private final FacetIndex priceFacet = new FacetIndex();
+
+    private final FacetIndex categoryFacet = new FacetIndex();
+
+    private final FacetIndex statusFacet = new FacetIndex();
+
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "product-search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder searches = new LongAdder();
+
+    private final LongAdder searchNanos = new LongAdder();
+
+    private final LongAdder updates = new LongAdder();
+
+    private final LongAdder inPlaceUpdates = new LongAdder();
+
+    private final LongAdder facetQueries = new LongAdder();
+
+    private final LongAdder facetNanos = new LongAdder();
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.build-batch-size:5000}")
+    private int buildBatchSize;
+
+    @Value("${app.search.facet.price-buckets:100,500,1000,2000,5000}")
+    private long[] priceBuckets;
+
+    @Value("${app.search.facet.max-values:20}")
+    private int maxFacetValues;
+
+    // 价格区间取值（如 100-500）及展示名称，下标为区间序号
+    private String[] priceBucketValues;
+    private String[] priceBucketLabels;
+
+    // 文档属性，下标为内部文档ID
+    private long[] productIds = new long[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int[] statuses = new int[INITIAL_CAPACITY];
+    private int[] salesCounts = new int[INITIAL_CAPACITY];
+    private long[] createdAts = new long[INITIAL_CAPACITY];
+    private IntPostings[][] docPostings = new IntPostings[INITIAL_CAPACITY][];
+    private int docCount;
+
+    private volatile boolean ready;
+
+    private volatile long buildMillis;
+
+    @PostConstruct
+    public void init() {
+        priceBucketValues = new String[priceBuckets.length + 1];
+        priceBucketLabels = new String[priceBuckets.length + 1];
+        for (int i = 0; i <= priceBuckets.length; i++) {
+            long lower = i == 0 ? 0 : priceBuckets[i - 1];
+            if (i < priceBuckets.length) {
+                priceBucketValues[i] = lower + "-" + priceBuckets[i];
+                priceBucketLabels[i] = "¥" + lower + "-" + priceBuckets[i];
+            } else {
+                priceBucketValues[i] = lower + "-";
+                priceBucketLabels[i] = "¥" + lower + "以上";
+            }
+        }
+        if (enabled) {
+            changeBroadcaster.subscribe(this::onProductChanged);
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台构建索引，构建期间搜索回退到数据库
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            indexer.execute(this::rebuild);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 按名称/品牌搜索，并按查询条件过滤、排序、分页
+     *
+     * @return 搜索结果；查询词无法分词时返回 null，由调用方回退到数据库
+     */
+    public SearchResult search(ProductDTO.ProductQuery query, int offset, int limit) {
+        List<Tokenizer.QueryTerm> terms = Tokenizer.queryTerms(query.getName());
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        long[] categories = categoryFilter(query);
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            List<TermPostings> termPostings = lookup(terms);
+            int[] filtered = filter(match(termPostings), query, categories);
+            int[] scores = "relevance".equals(query.getSortBy()) ? score(filtered, termPostings) : null;
+            int[] top = topK(filtered, scores, offset + limit, new Ranking(query.getSortBy(), query.getSortOrder(), scores));
+
+            List<Long> ids = new ArrayList<>(Math.max(0, top.length - offset));
+            for (int i = offset; i < top.length; i++) {
+                ids.add(productIds[top[i]]);
+            }
+            return new SearchResult(ids, filtered.length);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 统计当前筛选条件下品牌、价格区间、分类的分面计数
+     * 每个维度的计数不应用该维度自身的筛选条件，其余条件（关键词、状态等）全部生效
+     *
+     * @return 分面统计；关键词无法分词时返回 null
+     */
+    public ProductDTO.FacetResponse facets(ProductDTO.ProductQuery query) {
+        List<Tokenizer.QueryTerm> terms = hasText(query.getName())
+                ? Tokenizer.queryTerms(query.getName()) : new ArrayList<>();
+        if (hasText(query.getName()) && terms.isEmpty()) {
+            return null;
+        }
+
+        long[] categories = categoryFilter(query);
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            DocBitSet base = live.copy();
+            if (query.getStatus() != null) {
+                base.and(valueBits(statusFacet, String.valueOf(query.getStatus())));
+            }
+            if (!terms.isEmpty()) {
+                base.and(DocBitSet.of(match(lookup(terms))));
+            }
+            DocBitSet brandBits = hasText(query.getBrand()) ? valueBits(brandFacet, query.getBrand().trim()) : null;
+            DocBitSet categoryBits = null;
+            if (categories != null) {
+                categoryBits = new DocBitSet();
+                for (long categoryId : categories) {
+                    DocBitSet bits = categoryFacet.get(String.valueOf(categoryId));
+                    if (bits != null) {
+                        categoryBits.or(bits);
+                    }
+                }
+            }
+
+            ProductDTO.FacetResponse response = new ProductDTO.FacetResponse();
+            response.setBrands(topValues(brandFacet.counts(narrow(base, categoryBits, query, true))));
+            response.setCategories(topValues(categoryFacet.counts(narrow(base, brandBits, query, true))));
+
+            DocBitSet priceBase = narrow(base, brandBits, query, false);
+            if (categoryBits != null) {
+                priceBase.and(categoryBits);
+            }
+            List<ProductDTO.FacetValue> priceRanges = new ArrayList<>();
+            for (int i = 0; i < priceBucketValues.length; i++) {
+                DocBitSet bits = priceFacet.get(priceBucketValues[i]);
+                int count = bits != null ? priceBase.andCardinality(bits) : 0;
+                if (count > 0) {
+                    priceRanges.add(new ProductDTO.FacetValue(priceBucketValues[i], priceBucketLabels[i], (long) count));
+                }
+            }
+            response.setPriceRanges(priceRanges);
+            return response;
+        } finally {
+            lock.readLock().unlock();
+            facetQueries.increment();
+            facetNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "productSearchIndex";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("ready", ready);
+            stats.put("documents", live.cardinality());
+            stats.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searchCount = searches.sum();
+        stats.put("buildMillis", buildMillis);
+        stats.put("searches", searchCount);
+        stats.put("avgSearchMicros", searchCount == 0 ? 0.0
+                : (double) searchNanos.sum() / searchCount / TimeUnit.MICROSECONDS.toNanos(1));
+        stats.put("updates", updates.sum());
+        stats.put("inPlaceUpdates", inPlaceUpdates.sum());
+        long facetCount = facetQueries.sum();
+        stats.put("facetQueries", facetCount);
+        stats.put("avgFacetMicros", facetCount == 0 ? 0.0
+                : (double) facetNanos.sum() / facetCount / TimeUnit.MICROSECONDS.toNanos(1));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int total = 0;
+        try {
+            while (true) {
+                List<Product> batch = productMapper.findProductsForIndex(lastId, buildBatchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Product product : batch) {
+                        index(product);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                total += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            buildMillis = System.currentTimeMillis() - start;
+            ready = true;
+            log.info("商品搜索索引构建完成，商品数：{}，耗时：{}ms", total, buildMillis);
+        } catch (Exception e) {
+            log.error("商品搜索索引构建失败，搜索将回退到数据库：{}", e.getMessage());
+        }
+    }
+
+    private void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case STOCK_CHANGED:
+            case IMAGES_CHANGED:
+                // 库存和图片不参与搜索
+                return;
+            case SALES_CHANGED:
+            case STATUS_CHANGED:
+                if (event.getValue() != null) {
+                    indexer.execute(() -> updateInPlace(event));
+                    return;
+                }
+                // 未携带变更值时按普通变更重新读取
+            default:
+                indexer.execute(() -> refresh(event.getProductId()));
+        }
+    }
+
+    /**
+     * 销量、状态变更只改文档属性和状态分面，不读数据库、不改倒排表；索引中还没有该商品时回退到重新读取。
+     * 销量按增量累加，构建期间发生的变更可能被重复计入，偏差在下次全量构建时消除
+     */
+    private void updateInPlace(ProductChangedEvent event) {
+        boolean applied;
+        lock.writeLock().lock();
+        try {
+            Integer doc = docIds.get(event.getProductId());
+            applied = doc != null;
+            if (applied) {
+                if (event.getType() == ProductChangedEvent.Type.SALES_CHANGED) {
+                    salesCounts[doc] += event.getValue();
+                } else {
+                    statuses[doc] = event.getValue();
+                    statusFacet.set(doc, String.valueOf(statuses[doc]));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (applied) {
+            updates.increment();
+            inPlaceUpdates.increment();
+        } else {
+            refresh(event.getProductId());
+        }
+    }
+
+    /**
+     * 从数据库重新读取单个商品并更新索引
+     */
+    private void refresh(Long productId) {
+        try {
+            // 变更广播后立即读取，走主库避免从库延迟读到旧数据
+            Product product = RoutingContext.primary(() -> productMapper.selectById(productId));
+            lock.writeLock().lock();
+            try {
+                if (product == null) {
+                    remove(productId);
+                } else {
+                    index(product);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            updates.increment();
+        } catch (Exception e) {
+            log.warn("商品搜索索引更新失败，商品ID：{}，原因：{}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * 索引或重新索引商品。已有文档只调整名称、品牌变化涉及的倒排表，词项不变时倒排表不动
+     */
+    private void index(Product product) {
+        Integer doc = docIds.get(product.getId());
+        if (doc == null) {
+            doc = docCount++;
+            ensureCapacity(docCount);
+            docIds.put(product.getId(), doc);
+        }
+
+        Set<IntPostings> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (docPostings[doc] != null) {
+            Collections.addAll(stale, docPostings[doc]);
+        }
+        Set<String> terms = Tokenizer.indexTerms(product.getName(), NAME);
+        terms.addAll(Tokenizer.indexTerms(product.getBrand(), BRAND));
+        IntPostings[] linked = new IntPostings[terms.size()];
+        int i = 0;
+        for (String term : terms) {
+            IntPostings list = postings.computeIfAbsent(term, t -> new IntPostings());
+            if (!stale.remove(list)) {
+                list.add(doc);
+            }
+            linked[i++] = list;
+        }
+        for (IntPostings list : stale) {
+            list.remove(doc);
+        }
+
+        productIds[doc] = product.getId();
+        categoryIds[doc] = product.getCategoryId() != null ? product.getCategoryId() : 0;
+        prices[doc] = toCents(product.getPrice(), RoundingMode.HALF_UP);
+        statuses[doc] = product.getStatus() != null ? product.getStatus() : 0;
+        brandFacet.set(doc, hasText(product.getBrand()) ? product.getBrand().trim() : null);
+        priceFacet.set(doc, priceBucketValues[priceBucket(prices[doc])]);
+        categoryFacet.set(doc, String.valueOf(categoryIds[doc]));
+        statusFacet.set(doc, String.valueOf(statuses[doc]));
+        salesCounts[doc] = product.getSalesCount() != null ? product.getSalesCount() : 0;
+        createdAts[doc] = product.getCreatedAt() != null
+                ? product.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        docPostings[doc] = linked;
+        live.set(doc);
+    }
+
+    private void remove(Long productId) {
+        Integer doc = docIds.remove(productId);
+        if (doc != null) {
+            unlinkPostings(doc);
+            docPostings[doc] = null;
+            live.clear(doc);
+            brandFacet.clear(doc);
+            priceFacet.clear(doc);
+            categoryFacet.clear(doc);
+            statusFacet.clear(doc);
+        }
+    }
+
+    private void unlinkPostings(int doc) {
+        IntPostings[] linked = docPostings[doc];
+        if (linked != null) {
+            for (IntPostings list : linked) {
+                list.remove(doc);
+            }
+        }
+    }
+
+    private static int[] docs(IntPostings list) {
+        return list == null ? IntPostings.EMPTY : list.toArray();
+    }
+
+    private List<TermPostings> lookup(List<Tokenizer.QueryTerm> terms) {
+        List<TermPostings> termPostings = new ArrayList<>(terms.size());
+        for (Tokenizer.QueryTerm term : terms) {
+            termPostings.add(new TermPostings(term));
+        }
+        return termPostings;
+    }
+
+    /**
+     * 每个查询词在名称或品牌中命中即可，多个查询词之间取交集；从倒排表最短的词开始
+     */
+    private static int[] match(List<TermPostings> termPostings) {
+        List<TermPostings> ordered = new ArrayList<>(termPostings);
+        ordered.sort(Comparator.comparingLong(TermPostings::estimatedSize));
+
+        TermPostings first = ordered.get(0);
+        int[] candidates = IntPostings.union(docs(first.name), docs(first.brand));
+        for (int i = 1; i < ordered.size() && candidates.length > 0; i++) {
+            TermPostings term = ordered.get(i);
+            candidates = IntPostings.retain(candidates, term.name, term.brand);
+        }
+        return candidates;
+    }
+
+    private static DocBitSet valueBits(FacetIndex facet, String value) {
+        DocBitSet bits = facet.get(value);
+        return bits != null ? bits : new DocBitSet();
+    }
+
+    /**
+     * 复制 base 并叠加另一维度的位图和（可选的）价格筛选
+     */
+    private DocBitSet narrow(DocBitSet base, DocBitSet other, ProductDTO.ProductQuery query, boolean applyPrice) {
+        DocBitSet bits = base.copy();
+        if (other != null) {
+            bits.and(other);
+        }
+        if (applyPrice && (query.getMinPrice() != null || query.getMaxPrice() != null)) {
+            long minPrice = query.getMinPrice() != null ? toCents(query.getMinPrice(), RoundingMode.CEILING) : Long.MIN_VALUE;
+            long maxPrice = query.getMaxPrice() != null ? toCents(query.getMaxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+            for (int doc = bits.nextSetBit(0); doc >= 0; doc = bits.nextSetBit(doc + 1)) {
+                if (prices[doc] < minPrice || prices[doc] > maxPrice) {
+                    bits.clear(doc);
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 按计数降序取前 maxFacetValues 个取值
+     */
+    private List<ProductDTO.FacetValue> topValues(List<FacetIndex.Count> counts) {
+        counts.sort((a, b) -> a.count != b.count ? Integer.compare(b.count, a.count) : a.value.compareTo(b.value));
+        List<ProductDTO.FacetValue> values = new ArrayList<>(Math.min(counts.size(), maxFacetValues));
+        for (FacetIndex.Count count : counts.subList(0, Math.min(counts.size(), maxFacetValues))) {
+            values.add(new ProductDTO.FacetValue(count.value, count.value, (long) count.count));
+        }
+        return values;
+    }
+
+    private int priceBucket(long priceCents) {
+        int bucket = 0;
+        while (bucket < priceBuckets.length && priceCents >= priceBuckets[bucket] * 100) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * 分类筛选条件：分类自身（及全部子分类）的ID，升序；未按分类筛选时返回 null
+     */
+    private long[] categoryFilter(ProductDTO.ProductQuery query) {
+        if (query.getCategoryId() == null) {
+            return null;
+        }
+        if (!query.isIncludeDescendants()) {
+            return new long[]{query.getCategoryId()};
+        }
+        return categoryTreeCache.current().getDescendantIds(query.getCategoryId());
+    }
+
+    private int[] filter(int[] candidates, ProductDTO.ProductQuery query, long[] categories) {
+        long minPrice = query.getMinPrice() != null ? toCents(query.getMinPrice(), RoundingMode.CEILING) : Long.MIN_VALUE;
+        long maxPrice = query.getMaxPrice() != null ? toCents(query.getMaxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+        String brand = hasText(query.getBrand()) ? query.getBrand().trim() : null;
+        Integer status = query.getStatus();
+
+        int[] filtered = new int[candidates.length];
+        int count = 0;
+        for (int doc : candidates) {
+            if (!live.get(doc)
+                    || (categories != null && Arrays.binarySearch(categories, categoryIds[doc]) < 0)
+                    || (status != null && statuses[doc] != status)
+                    || (brand != null && !brand.equals(brandFacet.valueOf(doc)))
+                    || prices[doc] < minPrice || prices[doc] > maxPrice) {
+                continue;
+            }
+            filtered[count++] = doc;
+        }
+        return count == filtered.length ? filtered : Arrays.copyOf(filtered, count);
+    }
+
+    /**
+     * 相关度：名称完整单词命中 3 分、名称片段命中 2 分，品牌完整命中 2 分、品牌片段命中 1 分
+     */
+    private int[] score(int[] docs, List<TermPostings> terms) {
+        int[] scores = new int[docs.length];
+        for (TermPostings term : terms) {
+            addScores(docs, scores, term.nameExact, term.name, 3, 2);
+            addScores(docs, scores, term.brandExact, term.brand, 2, 1);
+        }
+        return scores;
+    }
+
+    private static void addScores(int[] docs, int[] scores, IntPostings exact, IntPostings partial,
+                                  int exactScore, int partialScore) {
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < docs.length; k++) {
+            int doc = docs[k];
+            if (exact != null) {
+                i = exact.seek(i, doc);
+                if (exact.matchesAt(i, doc)) {
+                    scores[k] += exactScore;
+                    continue;
+                }
+            }
+            if (partial != null) {
+                j = partial.seek(j, doc);
+                if (partial.matchesAt(j, doc)) {
+                    scores[k] += partialScore;
+                }
+            }
+        }
+    }
+
+    /**
+     * 用大小为 k 的堆选出排名前 k 的文档，返回按排名排好序的文档ID
+     */
+    private int[] topK(int[] docs, int[] scores, int k, Ranking ranking) {
+        int size = Math.min(k, docs.length);
+        if (size <= 0) {
+            return IntPostings.EMPTY;
+        }
+        // 堆中存放 docs 下标，堆顶为当前第 k 名（最差的一个）
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < docs.length; i++) {
+            if (heapSize < size) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, docs, ranking);
+            } else if (ranking.compare(docs, i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, heapSize, docs, ranking);
+            }
+        }
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = docs[heap[0]];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, docs, ranking);
+        }
+        return result;
+    }
+
+    private void siftUp(int[] heap, int index, int[] docs, Ranking ranking) {
+        int item = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (ranking.compare(docs, item, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = item;
+    }
+
+    private void siftDown(int[] heap, int size, int[] docs, Ranking ranking) {
+        if (size == 0) {
+            return;
+        }
+        int index = 0;
+        int item = heap[0];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && ranking.compare(docs, heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (ranking.compare(docs, item, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = item;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, productIds.length + (productIds.length >> 1));
+        productIds = Arrays.copyOf(productIds, newLength);
+        categoryIds = Arrays.copyOf(categoryIds, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        statuses = Arrays.copyOf(statuses, newLength);
+        salesCounts = Arrays.copyOf(salesCounts, newLength);
+        createdAts = Arrays.copyOf(createdAts, newLength);
+        docPostings = Arrays.copyOf(docPostings, newLength);
+    }
+
+    private static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price == null ? 0 : price.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    /**
+     * 排序规则，与 ProductMapper 一致：排序字段相同时按ID同向排序
+     */
+    private final class Ranking {
+
+        private final String sortBy;
+
+        private final boolean ascending;
+
+        private final int[] scores;
+
+        private Ranking(String sortBy, String sortOrder, int[] scores) {
+            this.sortBy = sortBy == null ? "created_at" : sortBy;
+            this.ascending = "asc".equals(sortOrder);
+            this.scores = scores;
+        }
+
+        /**
+         * 比较 docs[a] 与 docs[b]，负数表示 a 排在前面
+         */
+        int compare(int[] docs, int a, int b) {
+            int docA = docs[a];
+            int docB = docs[b];
+            int result;
+            switch (sortBy) {
+                case "relevance":
+                    result = Integer.compare(scores[b], scores[a]);
+                    if (result == 0) {
+                        result = Integer.compare(salesCounts[docB], salesCounts[docA]);
+                    }
+                    return result != 0 ? result : Long.compare(productIds[docB], productIds[docA]);
+                case "price":
+                    result = Long.compare(prices[docA], prices[docB]);
+                    break;
+                case "sales_count":
+                    result = Integer.compare(salesCounts[docA], salesCounts[docB]);
+                    break;
+                default:
+                    result = Long.compare(createdAts[docA], createdAts[docB]);
+            }
+            if (result == 0) {
+                result = Long.compare(productIds[docA], productIds[docB]);
+            }
+            return ascending ? result : -result;
+        }
+    }
+
+    /**
+     * 查询词对应的倒排表
+     */
+    private final class TermPostings {
+
+        private final IntPostings name;
+
+        private final IntPostings brand;
+
+        private final IntPostings nameExact;
+
+        private final IntPostings brandExact;
+
+        private TermPostings(Tokenizer.QueryTerm term) {
+            this.name = postings.get(term.matchTerm(NAME));
+            this.brand = postings.get(term.matchTerm(BRAND));
+            String nameExactTerm = term.exactTerm(NAME);
+            String brandExactTerm = term.exactTerm(BRAND);
+            this.nameExact = nameExactTerm != null ? postings.get(nameExactTerm) : null;
+            this.brandExact = brandExactTerm != null ? postings.get(brandExactTerm) : null;
+        }
+
+        private long estimatedSize() {
+            return (name != null ? name.size() : 0L) + (brand != null ? brand.size() : 0L);
+        }
+    }
+
+    /**
+     * 搜索结果：当前页商品ID（已排序）及过滤后的总数
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class SearchResult {
+        private final List<Long> productIds;
+        private final long total;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 商品搜索分词器
+ * 中文按单字 + 二元组（bigram）切分，英文和数字按单词切分并索引单词前缀
+ */
+final class Tokenizer {
+
+    /**
+     * 单词前缀最大索引长度，更长的查询词按完整单词匹配
+     */
+    static final int MAX_PREFIX_LENGTH = 16;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * 文档分词，生成索引词项
+     *
+     * @param text  字段文本
+     * @param field 字段前缀，如 "n"（名称）、"b"（品牌）
+     */
+    static Set<String> indexTerms(String text, String field) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (Run run : split(text)) {
+            if (run.cjk) {
+                String s = run.text;
+                for (int i = 0; i < s.length(); i++) {
+                    terms.add(field + ":" + s.charAt(i));
+                    if (i + 1 < s.length()) {
+                        terms.add(field + ":" + s.substring(i, i + 2));
+                    }
+                }
+            } else {
+                String word = run.text;
+                terms.add(field + "w:" + word);
+                for (int len = 1; len <= Math.min(word.length(), MAX_PREFIX_LENGTH); len++) {
+                    terms.add(field + ":" + word.substring(0, len));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 查询分词：英文单词按前缀匹配，中文连续片段拆成二元组（单字时按单字匹配）
+     */
+    static List<QueryTerm> queryTerms(String text) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (Run run : split(text)) {
+            String s = run.text;
+            if (run.cjk) {
+                if (s.length() == 1) {
+                    terms.add(new QueryTerm(s, false));
+                } else {
+                    for (int i = 0; i + 1 < s.length(); i++) {
+                        terms.add(new QueryTerm(s.substring(i, i + 2), false));
+                    }
+                }
+            } else {
+                terms.add(new QueryTerm(s, true));
+            }
+        }
+        return terms;
+    }
+
+    private static List<Run> split(String text) {
+        List<Run> runs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        Boolean currentCjk = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean cjk = isCjk(c);
+            boolean word = !cjk && Character.isLetterOrDigit(c);
+            if (!cjk && !word) {
+                flush(runs, current, currentCjk);
+                currentCjk = null;
+                continue;
+            }
+            if (currentCjk != null && currentCjk != cjk) {
+                flush(runs, current, currentCjk);
+            }
+            current.append(cjk ? c : Character.toLowerCase(c));
+            currentCjk = cjk;
+        }
+        flush(runs, current, currentCjk);
+        return runs;
+    }
+
+    private static void flush(List<Run> runs, StringBuilder current, Boolean cjk) {
+        if (current.length() > 0) {
+            runs.add(new Run(current.toString(), Boolean.TRUE.equals(cjk)));
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+
+    private static final class Run {
+        private final String text;
+        private final boolean cjk;
+
+        private Run(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+    }
+
+    /**
+     * 查询词项
+     */
+    static final class QueryTerm {
+
+        private final String text;
+
+        private final boolean word;
+
+        QueryTerm(String text, boolean word) {
+            this.text = text;
+            this.word = word;
+        }
+
+        /**
+         * 用于召回的词项：短单词查前缀表，超长单词查完整单词表
+         */
+        String matchTerm(String field) {
+            if (word && text.length() > MAX_PREFIX_LENGTH) {
+                return field + "w:" + text;
+            }
+            return field + ":" + text;
+        }
+
+        /**
+         * 完整单词命中的词项，用于相关度加分；中文片段返回 null
+         */
+        String exactTerm(String field) {
+            return word ? field + "w:" + text : null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.FlashSaleDTO;
+import com.example.ecommerce.dto.TicketDTO;
+
+/**
+ * 秒杀服务接口
+ */
+public interface FlashSaleService {
+
+    /**
+     * 创建秒杀活动（活动库存从商品库存中划出）
+     */
+    Long createSale(FlashSaleDTO.CreateRequest request);
+
+    /**
+     * 关闭秒杀活动，未售出的库存归还商品
+     */
+    void closeSale(Long saleId);
+
+    /**
+     * 获取秒杀活动
+     */
+    FlashSaleDTO.SaleResponse getSale(Long saleId);
+
+    /**
+     * 抢购，成功时返回排队凭证，订单异步创建
+     */
+    TicketDTO.TicketResponse purchase(Long userId, Long saleId, FlashSaleDTO.PurchaseRequest request);
+
+    /**
+     * 查询排队凭证状态
+     */
+    TicketDTO.TicketResponse getTicket(Long userId, String ticketId);
+}
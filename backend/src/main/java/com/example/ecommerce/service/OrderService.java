@@ -2,6 +2,8 @@ package com.example.ecommerce.service;
 
 import com.example.ecommerce.dto.OrderDTO;
 
+import java.util.List;
+
 /**
  * 订单服务接口
  */
@@ -12,6 +14,25 @@ public interface OrderService {
      */
     Long createOrder(Long userId, OrderDTO.CreateOrderRequest request);
 
+    /**
+     * 分配订单号（异步下单入队时）
+     */
+    String nextOrderNumber();
+
+    /**
+     * 批量创建订单（同一事务，任一订单失败时整批回滚）
+     *
+     * @return 订单ID，与入参顺序一致
+     */
+    List<Long> createOrders(List<OrderDTO.QueuedOrder> orders);
+
+    /**
+     * 批量创建秒杀订单（同一事务，库存已在活动创建时划出）
+     *
+     * @return 订单ID，与入参顺序一致
+     */
+    List<Long> createFlashSaleOrders(List<OrderDTO.FlashSaleOrder> orders);
+
     /**
      * 获取订单详情
      */
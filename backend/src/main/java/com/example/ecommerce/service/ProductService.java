@@ -2,6 +2,9 @@ package com.example.ecommerce.service;
 
 import com.example.ecommerce.dto.ProductDTO;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 商品服务接口
  */
@@ -22,16 +25,34 @@ public interface ProductService {
      */
     void deleteProduct(Long productId);
 
+    /**
+     * 更新商品图片列表（整体替换）
+     */
+    void updateProductImages(Long productId, List<String> imageUrls);
+
     /**
      * 获取商品详情
      */
     ProductDTO.ProductResponse getProductDetail(Long productId);
 
+    /**
+     * 批量获取商品详情，按传入顺序返回，不存在的商品会被跳过
+     */
+    List<ProductDTO.ProductResponse> getProductDetails(List<Long> productIds);
+
     /**
      * 分页查询商品列表
      */
     ProductDTO.PageResponse<ProductDTO.ProductListResponse> getProductList(ProductDTO.ProductQuery query);
 
+    /**
+     * 查询热销商品（按销量降序）
+     *
+     * @param categoryId 分类ID，为空时查询全站
+     * @param limit      返回数量
+     */
+    ProductDTO.PageResponse<ProductDTO.ProductListResponse> getFeaturedProducts(Long categoryId, int limit);
+
     /**
      * 更新商品状态（上架/下架）
      */
@@ -42,11 +63,25 @@ public interface ProductService {
      */
     boolean decreaseStock(Long productId, Integer quantity);
 
+    /**
+     * 批量减少库存，按商品ID顺序加锁，任一商品库存不足时全部不扣减（在调用方事务中时，调用方需回滚事务）
+     * 不在事务中调用时自行开启事务，死锁时自动重试
+     *
+     * @param quantities 商品ID -> 扣减数量
+     * @return 库存不足的商品，为空表示全部扣减成功
+     */
+    List<ProductDTO.StockShortage> decreaseStocks(Map<Long, Integer> quantities);
+
     /**
      * 增加库存
      */
     void increaseStock(Long productId, Integer quantity);
 
+    /**
+     * 设置热点商品的库存分桶数（0 表示取消分桶），库存总量不变
+     */
+    void updateStockBuckets(Long productId, Integer buckets);
+
     /**
      * 更新销量
      */
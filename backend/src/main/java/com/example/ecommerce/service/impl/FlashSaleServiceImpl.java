@@ -0,0 +1,218 @@
+package com.example.ecommerce.service.impl;
+
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.dto.FlashSaleDTO;
+import com.example.ecommerce.dto.OrderDTO;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.dto.TicketDTO;
+import com.example.ecommerce.entity.FlashSale;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.flashsale.FlashSaleGate;
+import com.example.ecommerce.flashsale.FlashSaleOrderWriter;
+import com.example.ecommerce.flashsale.FlashSaleTicket;
+import com.example.ecommerce.inventory.StockReservationService;
+import com.example.ecommerce.mapper.FlashSaleMapper;
+import com.example.ecommerce.mapper.ProductMapper;
+import com.example.ecommerce.service.FlashSaleService;
+import com.example.ecommerce.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 秒杀服务实现类
+ * <p>
+ * 活动创建时从商品库存中一次性划出活动库存，抢购只在 Redis 令牌池中扣减，订单由 FlashSaleOrderWriter 批量写入，
+ * 抢购过程不再访问商品库存行；活动关闭时把令牌池中剩余的数量归还商品库存。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private final FlashSaleMapper flashSaleMapper;
+
+    private final ProductMapper productMapper;
+
+    private final ProductService productService;
+
+    private final StockReservationService stockReservationService;
+
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+
+    private final FlashSaleGate flashSaleGate;
+
+    private final FlashSaleOrderWriter flashSaleOrderWriter;
+
+    @Override
+    public Long createSale(FlashSaleDTO.CreateRequest request) {
+        if (!request.getEndTime().isAfter(request.getStartTime()) || !request.getEndTime().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("秒杀结束时间不合法");
+        }
+        FlashSale sale = deadlockRetryTemplate.execute(() -> {
+            Product product = productMapper.selectById(request.getProductId());
+            if (product == null || product.getStatus() != 1) {
+                throw new RuntimeException("商品不存在或已下架");
+            }
+
+            FlashSale flashSale = new FlashSale();
+            flashSale.setProductId(request.getProductId());
+            flashSale.setPrice(request.getPrice());
+            flashSale.setTotalStock(request.getStock());
+            flashSale.setSold(0);
+            flashSale.setPerUserLimit(request.getPerUserLimit());
+            flashSale.setStartTime(request.getStartTime());
+            flashSale.setEndTime(request.getEndTime());
+            flashSale.setStatus(1);
+            flashSaleMapper.insert(flashSale);
+
+            // 划出活动库存：开启库存预占时按已支付的预占处理（由结算写回数据库），否则直接扣减商品库存
+            Map<Long, Integer> quantities = Map.of(request.getProductId(), request.getStock());
+            List<ProductDTO.StockShortage> shortages;
+            if (stockReservationService.isEnabled()) {
+                String reservationId = "flash-sale:" + flashSale.getId();
+                shortages = stockReservationService.reserve(reservationId, quantities);
+                if (shortages.isEmpty()) {
+                    stockReservationService.confirm(reservationId);
+                }
+            } else {
+                shortages = productService.decreaseStocks(quantities);
+            }
+            if (!shortages.isEmpty()) {
+                throw new RuntimeException("商品库存不足，当前可售：" + shortages.get(0).getAvailable());
+            }
+            return flashSale;
+        });
+
+        flashSaleGate.warm(sale);
+        log.info("秒杀活动创建成功，活动ID：{}，商品ID：{}，库存：{}", sale.getId(), sale.getProductId(), sale.getTotalStock());
+        return sale.getId();
+    }
+
+    @Override
+    public void closeSale(Long saleId) {
+        FlashSale sale = flashSaleMapper.selectById(saleId);
+        if (sale == null) {
+            throw new RuntimeException("秒杀活动不存在");
+        }
+        AtomicBoolean poolClosed = new AtomicBoolean();
+        try {
+            deadlockRetryTemplate.execute(() -> {
+                if (flashSaleMapper.close(saleId) == 0) {
+                    throw new RuntimeException("秒杀活动已关闭");
+                }
+                poolClosed.set(true);
+                // 令牌池中剩余的数量不会再生成订单（关闭可重入，事务重试时返回同一数量）；
+                // 令牌池不存在（已过期）时按加锁后重新读取的已售数量计算
+                long remaining = flashSaleGate.close(saleId);
+                int unsold;
+                if (remaining >= 0) {
+                    unsold = (int) remaining;
+                } else {
+                    FlashSale latest = flashSaleMapper.selectById(saleId);
+                    unsold = latest.getTotalStock() - latest.getSold();
+                }
+                if (unsold > 0) {
+                    if (stockReservationService.isEnabled()) {
+                        stockReservationService.restockAfterCommit(Map.of(sale.getProductId(), unsold));
+                    } else {
+                        productService.increaseStock(sale.getProductId(), unsold);
+                    }
+                }
+                log.info("秒杀活动已关闭，活动ID：{}，归还库存：{}", saleId, unsold);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // 关闭事务已回滚，数据库中活动仍在进行，恢复令牌池
+            if (poolClosed.get()) {
+                flashSaleGate.reopen(sale);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public FlashSaleDTO.SaleResponse getSale(Long saleId) {
+        FlashSale sale = flashSaleMapper.selectById(saleId);
+        if (sale == null) {
+            throw new RuntimeException("秒杀活动不存在");
+        }
+        FlashSaleDTO.SaleResponse response = new FlashSaleDTO.SaleResponse();
+        BeanUtils.copyProperties(sale, response);
+        Long remaining = sale.getStatus() == 1 ? flashSaleGate.remaining(saleId) : Long.valueOf(0);
+        response.setRemaining(remaining != null ? remaining : (long) (sale.getTotalStock() - sale.getSold()));
+        return response;
+    }
+
+    @Override
+    public TicketDTO.TicketResponse purchase(Long userId, Long saleId, FlashSaleDTO.PurchaseRequest request) {
+        // 已售罄的活动在进程内直接拒绝
+        if (flashSaleGate.isSoldOut(saleId)) {
+            throw new RuntimeException("已售罄");
+        }
+        FlashSale sale = flashSaleGate.sale(saleId);
+        if (sale == null) {
+            throw new RuntimeException("秒杀活动不存在");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (now.isBefore(sale.getStartTime())) {
+            throw new RuntimeException("秒杀尚未开始");
+        }
+        if (sale.getStatus() != 1 || now.isAfter(sale.getEndTime())) {
+            throw new RuntimeException("秒杀已结束");
+        }
+        int quantity = request.getQuantity();
+        if (quantity > sale.getPerUserLimit()) {
+            throw new RuntimeException("超出限购数量");
+        }
+
+        FlashSaleGate.Admission admission = flashSaleGate.acquire(sale, userId, quantity);
+        if (admission == FlashSaleGate.Admission.SOLD_OUT) {
+            throw new RuntimeException("已售罄");
+        }
+        if (admission == FlashSaleGate.Admission.INSUFFICIENT) {
+            throw new RuntimeException("剩余数量不足");
+        }
+        if (admission == FlashSaleGate.Admission.LIMIT_EXCEEDED) {
+            throw new RuntimeException("超出限购数量");
+        }
+
+        OrderDTO.FlashSaleOrder order = new OrderDTO.FlashSaleOrder();
+        BeanUtils.copyProperties(request, order);
+        order.setUserId(userId);
+        order.setProductId(sale.getProductId());
+        order.setPrice(sale.getPrice());
+
+        // 保存凭证失败（Redis 异常）时请求未入队，与排队已满一样退回名额
+        TicketDTO.TicketResponse ticket;
+        try {
+            ticket = flashSaleOrderWriter.submit(
+                    new FlashSaleTicket(UUID.randomUUID().toString().replace("-", ""), saleId, order));
+        } catch (RuntimeException e) {
+            flashSaleGate.release(saleId, userId, quantity);
+            log.error("秒杀排队失败，活动ID：{}，用户ID：{}，原因：{}", saleId, userId, e.getMessage());
+            throw new RuntimeException("抢购失败，请重试");
+        }
+        if (ticket == null) {
+            flashSaleGate.release(saleId, userId, quantity);
+            throw new RuntimeException("排队人数过多，请稍后重试");
+        }
+        return ticket;
+    }
+
+    @Override
+    public TicketDTO.TicketResponse getTicket(Long userId, String ticketId) {
+        TicketDTO.TicketResponse ticket = flashSaleOrderWriter.getTicket(userId, ticketId);
+        if (ticket == null) {
+            throw new RuntimeException("排队凭证不存在或已过期");
+        }
+        return ticket;
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.ecommerce.service.impl;
 
 
+import com.example.ecommerce.cache.OrderIdFilter;
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.SnowflakeIdGenerator;
 import com.example.ecommerce.dto.OrderDTO;
+import com.example.ecommerce.dto.ProductDTO;
 import com.example.ecommerce.entity.Order;
 import com.example.ecommerce.entity.OrderItem;
 import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.event.OrderCreatedEvent;
+import com.example.ecommerce.event.StockReservationExpiredEvent;
+import com.example.ecommerce.inventory.StockReservationService;
 import com.example.ecommerce.mapper.OrderItemMapper;
 import com.example.ecommerce.mapper.OrderMapper;
 import com.example.ecommerce.mapper.ProductMapper;
@@ -13,14 +20,22 @@ import com.example.ecommerce.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 订单服务实现类
@@ -30,79 +45,203 @@ import java.util.concurrent.ThreadLocalRandom;
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    private static final String ORDER_NUMBER_PREFIX = "ORDER";
+
+    private static final String FLASH_SALE_ORDER_NUMBER_PREFIX = "FLASH";
+
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
     private final ProductMapper productMapper;
     private final ProductService productService;
+    private final OrderIdFilter orderIdFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+    private final StockReservationService stockReservationService;
+    private final SnowflakeIdGenerator idGenerator;
 
+    /**
+     * 创建订单，整个事务遇到死锁时自动重试
+     */
     @Override
-    @Transactional
     public Long createOrder(Long userId, OrderDTO.CreateOrderRequest request) {
-        // 1. 验证商品信息并计算总金额
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        for (OrderDTO.OrderItemRequest itemRequest : request.getOrderItems()) {
-            Product product = productMapper.selectById(itemRequest.getProductId());
+        return deadlockRetryTemplate.execute(() -> {
+            OrderDTO.QueuedOrder queuedOrder = new OrderDTO.QueuedOrder();
+            queuedOrder.setOrderNumber(generateOrderNumber());
+            queuedOrder.setUserId(userId);
+            queuedOrder.setRequest(request);
+            return doCreateOrders(List.of(queuedOrder)).get(0);
+        });
+    }
+
+    @Override
+    public String nextOrderNumber() {
+        return generateOrderNumber();
+    }
+
+    @Override
+    @Transactional
+    public List<Long> createOrders(List<OrderDTO.QueuedOrder> queuedOrders) {
+        return doCreateOrders(queuedOrders);
+    }
+
+    /**
+     * 在同一事务中创建一批订单，任一订单失败时抛出异常，整批回滚
+     */
+    private List<Long> doCreateOrders(List<OrderDTO.QueuedOrder> queuedOrders) {
+        // 1. 合并每个订单中同一商品的多个订单项，一次查询全部商品
+        List<Map<Long, Integer>> orderQuantities = new ArrayList<>(queuedOrders.size());
+        Map<Long, Integer> totalQuantities = new LinkedHashMap<>();
+        for (OrderDTO.QueuedOrder queuedOrder : queuedOrders) {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (OrderDTO.OrderItemRequest itemRequest : queuedOrder.getRequest().getOrderItems()) {
+                quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+            }
+            quantities.forEach((productId, quantity) -> totalQuantities.merge(productId, quantity, Integer::sum));
+            orderQuantities.add(quantities);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productMapper.selectByIds(totalQuantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        // 2. 在内存中验证商品信息
+        for (Map.Entry<Long, Integer> entry : totalQuantities.entrySet()) {
+            Product product = products.get(entry.getKey());
             if (product == null || product.getStatus() != 1) {
-                throw new RuntimeException("商品不存在或已下架：" + itemRequest.getProductId());
+                throw new RuntimeException("商品不存在或已下架：" + entry.getKey());
             }
-            if (product.getStock() < itemRequest.getQuantity()) {
+            // 启用库存预占时以 Redis 中的可售库存为准，数据库库存存在结算延迟
+            if (!stockReservationService.isEnabled() && product.getStock() < entry.getValue()) {
                 throw new RuntimeException("商品库存不足：" + product.getName());
             }
-            
-            BigDecimal itemTotal = product.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
-            totalAmount = totalAmount.add(itemTotal);
-        }
-
-        // 2. 生成订单号
-        String orderNumber = generateOrderNumber();
-
-        // 3. 创建订单
-        Order order = new Order();
-        order.setOrderNumber(orderNumber);
-        order.setUserId(userId);
-        order.setTotalAmount(totalAmount);
-        order.setStatus(1); // 待支付
-        order.setAddressId(request.getAddressId());
-        order.setReceiverName(request.getReceiverName());
-        order.setReceiverPhone(request.getReceiverPhone());
-        order.setReceiverAddress(request.getReceiverAddress());
-        order.setRemarks(request.getRemarks());
-
-        int result = orderMapper.insert(order);
-        if (result <= 0) {
+        }
+
+        // 3. 计算总金额，批量创建订单
+        List<Order> orders = new ArrayList<>(queuedOrders.size());
+        for (int i = 0; i < queuedOrders.size(); i++) {
+            OrderDTO.QueuedOrder queuedOrder = queuedOrders.get(i);
+            OrderDTO.CreateOrderRequest request = queuedOrder.getRequest();
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            for (Map.Entry<Long, Integer> entry : orderQuantities.get(i).entrySet()) {
+                totalAmount = totalAmount.add(products.get(entry.getKey()).getPrice().multiply(BigDecimal.valueOf(entry.getValue())));
+            }
+
+            Order order = new Order();
+            order.setOrderNumber(queuedOrder.getOrderNumber());
+            order.setUserId(queuedOrder.getUserId());
+            order.setTotalAmount(totalAmount);
+            order.setStatus(1); // 待支付
+            order.setAddressId(request.getAddressId());
+            order.setReceiverName(request.getReceiverName());
+            order.setReceiverPhone(request.getReceiverPhone());
+            order.setReceiverAddress(request.getReceiverAddress());
+            order.setRemarks(request.getRemarks());
+            orders.add(order);
+        }
+        if (orderMapper.batchInsert(orders) < orders.size()) {
             throw new RuntimeException("订单创建失败");
         }
 
-        // 4. 创建订单项并减库存
-        for (OrderDTO.OrderItemRequest itemRequest : request.getOrderItems()) {
-            Product product = productMapper.selectById(itemRequest.getProductId());
-            
-            // 减少库存
-            boolean stockDecreased = productService.decreaseStock(itemRequest.getProductId(), itemRequest.getQuantity());
-            if (!stockDecreased) {
-                throw new RuntimeException("库存扣减失败：" + product.getName());
+        // 4. 在 Redis 中按订单预占库存（事务回滚时自动释放），或按商品ID顺序锁定并一次扣减整批的数据库库存，任一商品不足时整批回滚
+        List<ProductDTO.StockShortage> shortages = Collections.emptyList();
+        if (stockReservationService.isEnabled()) {
+            for (int i = 0; i < orders.size() && shortages.isEmpty(); i++) {
+                shortages = stockReservationService.reserve(orders.get(i).getOrderNumber(), orderQuantities.get(i));
             }
+        } else {
+            shortages = productService.decreaseStocks(totalQuantities);
+        }
+        if (!shortages.isEmpty()) {
+            throw new RuntimeException("商品库存不足：" + shortages.stream()
+                    .map(shortage -> products.get(shortage.getProductId()).getName())
+                    .collect(Collectors.joining("，")));
+        }
 
-            // 创建订单项
+        // 5. 批量创建订单项
+        List<OrderItem> orderItems = new ArrayList<>();
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            for (Map.Entry<Long, Integer> entry : orderQuantities.get(i).entrySet()) {
+                Product product = products.get(entry.getKey());
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrderId(order.getId());
+                orderItem.setProductId(entry.getKey());
+                orderItem.setProductName(product.getName());
+                orderItem.setProductPrice(product.getPrice());
+                orderItem.setProductImage(product.getMainImage());
+                orderItem.setQuantity(entry.getValue());
+                orderItem.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(entry.getValue())));
+                orderItems.add(orderItem);
+            }
+            orderIds.add(order.getId());
+        }
+        orderItemMapper.batchInsert(orderItems);
+
+        for (Order order : orders) {
+            eventPublisher.publishEvent(new OrderCreatedEvent(order.getId()));
+            log.info("订单创建成功，订单ID：{}，订单号：{}", order.getId(), order.getOrderNumber());
+        }
+        return orderIds;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> createFlashSaleOrders(List<OrderDTO.FlashSaleOrder> flashSaleOrders) {
+        Map<Long, Product> products = new HashMap<>();
+        Set<Long> productIds = new HashSet<>();
+        flashSaleOrders.forEach(flashSaleOrder -> productIds.add(flashSaleOrder.getProductId()));
+        for (Product product : productMapper.selectByIds(productIds)) {
+            products.put(product.getId(), product);
+        }
+
+        List<Order> orders = new ArrayList<>(flashSaleOrders.size());
+        for (OrderDTO.FlashSaleOrder flashSaleOrder : flashSaleOrders) {
+            if (!products.containsKey(flashSaleOrder.getProductId())) {
+                throw new RuntimeException("商品不存在：" + flashSaleOrder.getProductId());
+            }
+            Order order = new Order();
+            order.setOrderNumber(idGenerator.nextOrderNumber(FLASH_SALE_ORDER_NUMBER_PREFIX));
+            order.setUserId(flashSaleOrder.getUserId());
+            order.setTotalAmount(flashSaleOrder.getPrice().multiply(BigDecimal.valueOf(flashSaleOrder.getQuantity())));
+            order.setStatus(1); // 待支付
+            order.setAddressId(flashSaleOrder.getAddressId());
+            order.setReceiverName(flashSaleOrder.getReceiverName());
+            order.setReceiverPhone(flashSaleOrder.getReceiverPhone());
+            order.setReceiverAddress(flashSaleOrder.getReceiverAddress());
+            order.setRemarks(flashSaleOrder.getRemarks());
+            orders.add(order);
+        }
+        if (orderMapper.batchInsert(orders) < orders.size()) {
+            throw new RuntimeException("订单创建失败");
+        }
+
+        List<OrderItem> orderItems = new ArrayList<>(orders.size());
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            OrderDTO.FlashSaleOrder flashSaleOrder = flashSaleOrders.get(i);
+            Product product = products.get(flashSaleOrder.getProductId());
             OrderItem orderItem = new OrderItem();
-            orderItem.setOrderId(order.getId());
-            orderItem.setProductId(itemRequest.getProductId());
+            orderItem.setOrderId(orders.get(i).getId());
+            orderItem.setProductId(product.getId());
             orderItem.setProductName(product.getName());
-            orderItem.setProductPrice(product.getPrice());
+            orderItem.setProductPrice(flashSaleOrder.getPrice());
             orderItem.setProductImage(product.getMainImage());
-            orderItem.setQuantity(itemRequest.getQuantity());
-            orderItem.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
-
-            orderItemMapper.insert(orderItem);
+            orderItem.setQuantity(flashSaleOrder.getQuantity());
+            orderItem.setSubtotal(orders.get(i).getTotalAmount());
+            orderItems.add(orderItem);
+            orderIds.add(orders.get(i).getId());
         }
+        orderItemMapper.batchInsert(orderItems);
 
-        log.info("订单创建成功，订单ID：{}，订单号：{}", order.getId(), orderNumber);
-        return order.getId();
+        orderIds.forEach(orderId -> eventPublisher.publishEvent(new OrderCreatedEvent(orderId)));
+        log.info("秒杀订单批量创建成功，订单数：{}", orderIds.size());
+        return orderIds;
     }
 
     @Override
     public OrderDTO.OrderResponse getOrderDetail(Long orderId, Long userId) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = findOrder(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
@@ -180,7 +319,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void updateOrderStatus(Long orderId, OrderDTO.UpdateOrderStatusRequest request) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = findOrder(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
@@ -188,6 +327,15 @@ public class OrderServiceImpl implements OrderService {
         // 验证状态转换是否合法
         validateStatusTransition(order.getStatus(), request.getStatus());
 
+        if (stockReservationService.isEnabled() && order.getStatus() == 1) {
+            if (request.getStatus() == 2 && !stockReservationService.confirm(order.getOrderNumber())) {
+                throw new RuntimeException("订单支付超时，库存已释放");
+            }
+            if (request.getStatus() == 5) {
+                stockReservationService.releaseOrRestockAfterCommit(order.getOrderNumber(), orderQuantities(orderId));
+            }
+        }
+
         // 更新订单状态
         order.setStatus(request.getStatus());
         if (request.getRemarks() != null) {
@@ -205,7 +353,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void cancelOrder(Long orderId, Long userId) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = findOrder(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
@@ -221,9 +369,20 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // 恢复库存
-        List<OrderItem> orderItems = orderItemMapper.findByOrderId(orderId);
-        for (OrderItem item : orderItems) {
-            productService.increaseStock(item.getProductId(), item.getQuantity());
+        if (stockReservationService.isEnabled()) {
+            // 待支付订单释放预占（没有预占的直接归还）；已支付订单的预占已确认，直接归还
+            if (order.getStatus() == 1) {
+                stockReservationService.releaseOrRestockAfterCommit(order.getOrderNumber(), orderQuantities(orderId));
+            } else {
+                stockReservationService.restockAfterCommit(orderQuantities(orderId));
+            }
+        } else {
+            // 与扣减库存一致按商品ID顺序加锁，避免与并发下单互相死锁
+            List<OrderItem> orderItems = orderItemMapper.findByOrderId(orderId);
+            orderItems.sort(Comparator.comparing(OrderItem::getProductId));
+            for (OrderItem item : orderItems) {
+                productService.increaseStock(item.getProductId(), item.getQuantity());
+            }
         }
 
         // 更新订单状态为已取消
@@ -236,7 +395,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void confirmOrder(Long orderId, Long userId) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = findOrder(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
@@ -269,13 +428,46 @@ public class OrderServiceImpl implements OrderService {
         return orderMapper.getOrderStatistics(null, null);
     }
 
+    /**
+     * 库存预占超时后取消仍未支付的订单
+     */
+    @EventListener
+    public void onStockReservationExpired(StockReservationExpiredEvent event) {
+        if (orderMapper.cancelUnpaid(event.getReservationId()) > 0) {
+            log.info("订单超时未支付，已自动取消，订单号：{}", event.getReservationId());
+        }
+    }
+
+    /**
+     * 按ID查询订单，不存在的订单ID由布隆过滤器直接拦截，不查询数据库
+     */
+    private Order findOrder(Long orderId) {
+        if (!orderIdFilter.mightExist(orderId)) {
+            return null;
+        }
+        Order order = orderMapper.selectById(orderId);
+        if (order == null) {
+            orderIdFilter.recordMissing(orderId);
+        }
+        return order;
+    }
+
     /**
      * 生成订单号
      */
     private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.format("%04d", ThreadLocalRandom.current().nextInt(10000));
-        return "ORDER" + timestamp + random;
+        return idGenerator.nextOrderNumber(ORDER_NUMBER_PREFIX);
+    }
+
+    /**
+     * 订单中各商品的购买数量
+     */
+    private Map<Long, Integer> orderQuantities(Long orderId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : orderItemMapper.findByOrderId(orderId)) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
     }
 
     /**
@@ -1,19 +1,41 @@
 package com.example.ecommerce.service.impl;
 
 
+import com.example.ecommerce.cache.CategoryTree;
+import com.example.ecommerce.cache.CategoryTreeCache;
+import com.example.ecommerce.cache.HotProductLeaderboard;
+import com.example.ecommerce.cache.ProductCountCache;
+import com.example.ecommerce.cache.ProductDetailCache;
+import com.example.ecommerce.cache.ProductIdFilter;
+import com.example.ecommerce.cache.ProductListCache;
+import com.example.ecommerce.common.DeadlockRetryTemplate;
+import com.example.ecommerce.common.ProductCursor;
 import com.example.ecommerce.dto.ProductDTO;
 import com.example.ecommerce.entity.Category;
 import com.example.ecommerce.entity.Product;
 import com.example.ecommerce.entity.ProductImage;
+import com.example.ecommerce.inventory.InventoryBucketService;
 import com.example.ecommerce.mapper.CategoryMapper;
 import com.example.ecommerce.mapper.ProductMapper;
 import com.example.ecommerce.mapper.ProductImageMapper;
+import com.example.ecommerce.search.ProductSearchIndex;
+import com.example.ecommerce.event.ProductChangedEvent;
 import com.example.ecommerce.service.ProductService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,9 +47,32 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
+    /**
+     * 热销榜单多读取的条数
+     */
+    private static final int FEATURED_SLACK = 4;
+
+    /**
+     * 批量查询商品详情的最大数量
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final ProductMapper productMapper;
     private final CategoryMapper categoryMapper;
     private final ProductImageMapper productImageMapper;
+    private final ProductDetailCache productDetailCache;
+    private final ProductIdFilter productIdFilter;
+    private final ProductCountCache productCountCache;
+    private final ProductListCache productListCache;
+    private final HotProductLeaderboard hotProductLeaderboard;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DeadlockRetryTemplate deadlockRetryTemplate;
+    private final InventoryBucketService inventoryBucketService;
+
+    @Value("${app.product.count.capped-pages:10}")
+    private int cappedPages;
 
     @Override
     @Transactional
@@ -48,6 +93,7 @@ public class ProductServiceImpl implements ProductService {
             throw new RuntimeException("商品创建失败");
         }
 
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.Type.CREATED, product.getCategoryId()));
         log.info("商品创建成功，商品ID：{}", product.getId());
         return product.getId();
     }
@@ -69,6 +115,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         // 更新商品信息
+        Long previousCategoryId = product.getCategoryId();
         BeanUtils.copyProperties(request, product);
         product.setId(productId); // 确保ID不变
 
@@ -76,7 +123,11 @@ public class ProductServiceImpl implements ProductService {
         if (result <= 0) {
             throw new RuntimeException("商品更新失败");
         }
+        // 分桶商品的库存写入各分桶
+        inventoryBucketService.resetStock(productId, product.getStock());
 
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED,
+                previousCategoryId, product.getCategoryId()));
         log.info("商品更新成功，商品ID：{}", productId);
     }
 
@@ -93,49 +144,338 @@ public class ProductServiceImpl implements ProductService {
             throw new RuntimeException("商品删除失败");
         }
 
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.DELETED, product.getCategoryId()));
         log.info("商品删除成功，商品ID：{}", productId);
     }
 
+    @Override
+    @Transactional
+    public void updateProductImages(Long productId, List<String> imageUrls) {
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            throw new RuntimeException("商品不存在");
+        }
+
+        // 先逻辑删除旧图片，再按顺序写入新图片
+        productImageMapper.deleteByProductId(productId);
+        if (imageUrls != null && !imageUrls.isEmpty()) {
+            List<ProductImage> images = new ArrayList<>(imageUrls.size());
+            for (int i = 0; i < imageUrls.size(); i++) {
+                ProductImage image = new ProductImage();
+                image.setProductId(productId);
+                image.setImageUrl(imageUrls.get(i));
+                image.setSortOrder(i + 1);
+                images.add(image);
+            }
+            productImageMapper.batchInsert(images);
+        }
+        productMapper.touch(productId);
+
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.IMAGES_CHANGED));
+        log.info("商品图片更新成功，商品ID：{}，图片数量：{}", productId, imageUrls == null ? 0 : imageUrls.size());
+    }
+
     @Override
     public ProductDTO.ProductResponse getProductDetail(Long productId) {
-        ProductDTO.ProductResponse product = productMapper.findProductDetailById(productId);
+        // 不存在的商品ID直接拒绝，不查询缓存和数据库
+        if (!productIdFilter.mightExist(productId)) {
+            throw new RuntimeException("商品不存在");
+        }
+        ProductDTO.ProductResponse product = productDetailCache.get(productId, this::loadProductDetail);
         if (product == null) {
+            productIdFilter.recordMissing(productId);
             throw new RuntimeException("商品不存在");
         }
-        
+        return product;
+    }
+
+    /**
+     * 批量读取商品详情：布隆过滤器拦截不存在的ID，其余一次批量读取缓存，未命中的合并回源；
+     * 数据库中也不存在的ID记入负缓存
+     */
+    @Override
+    public List<ProductDTO.ProductResponse> getProductDetails(List<Long> productIds) {
+        Set<Long> uniqueIds = new LinkedHashSet<>();
+        for (Long productId : productIds) {
+            if (productId != null) {
+                uniqueIds.add(productId);
+            }
+        }
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("单次最多查询" + MAX_BATCH_SIZE + "个商品");
+        }
+        uniqueIds.removeIf(productId -> !productIdFilter.mightExist(productId));
+        if (uniqueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, ProductDTO.ProductResponse> products = productDetailCache.getAll(uniqueIds, this::loadProductDetails);
+        List<ProductDTO.ProductResponse> result = new ArrayList<>(products.size());
+        for (Long productId : uniqueIds) {
+            ProductDTO.ProductResponse product = products.get(productId);
+            if (product != null) {
+                result.add(product);
+            } else {
+                productIdFilter.recordMissing(productId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量回源：商品和图片各一次查询
+     */
+    private Map<Long, ProductDTO.ProductResponse> loadProductDetails(List<Long> productIds) {
+        Map<Long, ProductDTO.ProductResponse> products = new HashMap<>(productIds.size() * 2);
+        for (ProductDTO.ProductResponse product : productMapper.findProductDetailsByIds(productIds)) {
+            product.setImages(new ArrayList<>());
+            products.put(product.getId(), product);
+        }
+        if (!products.isEmpty()) {
+            for (ProductImage image : productImageMapper.findByProductIds(new ArrayList<>(products.keySet()))) {
+                ProductDTO.ProductResponse product = products.get(image.getProductId());
+                if (product != null) {
+                    product.getImages().add(image.getImageUrl());
+                }
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 从数据库加载商品详情（含图片列表），商品不存在时返回 null
+     */
+    private ProductDTO.ProductResponse loadProductDetail(Long productId) {
+        ProductDTO.ProductResponse product = productMapper.findProductDetailById(productId);
+        if (product == null) {
+            return null;
+        }
+
         // 获取商品图片列表
         List<ProductImage> productImages = productImageMapper.findByProductId(productId);
         List<String> imageUrls = productImages.stream()
                 .map(ProductImage::getImageUrl)
                 .collect(Collectors.toList());
         product.setImages(imageUrls);
-        
+
         return product;
     }
 
     @Override
     public ProductDTO.PageResponse<ProductDTO.ProductListResponse> getProductList(ProductDTO.ProductQuery query) {
+        return productListCache.get(query, this::loadProductList, this::hydrate);
+    }
+
+    /**
+     * 查询商品列表（不经过列表缓存）
+     */
+    private ProductDTO.PageResponse<ProductDTO.ProductListResponse> loadProductList(ProductDTO.ProductQuery query) {
+        boolean hasName = query.getName() != null && !query.getName().trim().isEmpty();
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            // 与首页判断是否返回 nextCursor 的条件一致：非全文搜索时 relevance 按创建时间排序，可以继续翻页
+            if (query.getSearchMode() == null) {
+                query.setSearchMode(defaultSearchMode(query, hasName));
+            }
+            if (query.relevanceSort()) {
+                throw new RuntimeException("相关度排序不支持游标分页");
+            }
+            return attachFacets(query, getProductListByCursor(query));
+        }
+
         // 计算分页参数
         int page = query.getPage() != null ? query.getPage() : 1;
         int size = query.getSize() != null ? query.getSize() : 10;
         int offset = (page - 1) * size;
+        ProductDTO.CountMode countMode = query.getCountMode() != null ? query.getCountMode() : ProductDTO.CountMode.EXACT;
 
-        // 查询商品列表
-        List<ProductDTO.ProductListResponse> records = productMapper.findProductsWithCategory(query, offset, size);
-        
-        // 查询总数
-        long total = productMapper.countProducts(query);
-        
-        // 计算总页数
-        int pages = (int) Math.ceil((double) total / size);
+        // 名称搜索优先走进程内倒排索引（显式指定全文检索时除外），索引未就绪时回退到数据库
+        boolean explicitFulltext = query.getSearchMode() != null && query.getSearchMode().isFulltext();
+        if (hasName && !explicitFulltext && productSearchIndex.isReady()) {
+            ProductSearchIndex.SearchResult result = productSearchIndex.search(query, offset, size);
+            if (result != null) {
+                return attachFacets(query, buildSearchPage(result, page, size));
+            }
+        }
+
+        if (query.getSearchMode() == null) {
+            query.setSearchMode(defaultSearchMode(query, hasName));
+        }
+
+        ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = new ProductDTO.PageResponse<>();
+        response.setPage(page);
+        response.setSize(size);
+
+        List<ProductDTO.ProductListResponse> records;
+        boolean hasMore;
+        if (countMode == ProductDTO.CountMode.HAS_MORE) {
+            // 不统计总数，多取一条判断是否还有下一页
+            records = productMapper.findProductsWithCategory(query, offset, size + 1);
+            hasMore = records.size() > size;
+            if (hasMore) {
+                records = records.subList(0, size);
+            }
+        } else {
+            // 查询商品列表
+            records = productMapper.findProductsWithCategory(query, offset, size);
+
+            // 查询总数
+            long total;
+            boolean totalExact = true;
+            if (countMode == ProductDTO.CountMode.CAPPED) {
+                // 最多统计到 cappedPages 页（至少覆盖当前页），多数一行用于判断是否超出上限
+                long cap = (long) Math.max(cappedPages, page) * size;
+                total = productMapper.countProductsCapped(query, (int) Math.min(Integer.MAX_VALUE, cap + 1));
+                if (total > cap) {
+                    total = cap;
+                    totalExact = false;
+                }
+            } else {
+                total = productCountCache.get(query, productMapper::countProducts);
+            }
+
+            // 计算总页数
+            int pages = (int) Math.ceil((double) total / size);
+            hasMore = page < pages || !totalExact;
+
+            response.setTotal(total);
+            response.setPages(pages);
+            response.setTotalExact(totalExact);
+        }
 
         // 构建返回结果
+        response.setRecords(records);
+        response.setHasMore(hasMore);
+        // 相关度得分无法作为游标的排序键，只支持页码分页
+        if (hasMore && !records.isEmpty() && !query.relevanceSort()) {
+            response.setNextCursor(ProductCursor.after(query, records.get(records.size() - 1)).encode());
+        }
+
+        return attachFacets(query, response);
+    }
+
+    /**
+     * 未指定搜索方式时，按相关度排序使用全文索引，否则保持 LIKE 模糊匹配
+     */
+    private static ProductDTO.SearchMode defaultSearchMode(ProductDTO.ProductQuery query, boolean hasName) {
+        return "relevance".equals(query.getSortBy()) && hasName ? ProductDTO.SearchMode.NATURAL : ProductDTO.SearchMode.LIKE;
+    }
+
+    @Override
+    public ProductDTO.PageResponse<ProductDTO.ProductListResponse> getFeaturedProducts(Long categoryId, int limit) {
+        // 多取几条，榜单中残留的已下架/已换分类商品被过滤后仍能凑满
+        List<Long> productIds = limit <= hotProductLeaderboard.getCapacity()
+                ? hotProductLeaderboard.top(categoryId, limit + FEATURED_SLACK) : null;
+        if (productIds == null) {
+            // 超出榜单容量或 Redis 不可用时回退到数据库
+            ProductDTO.ProductQuery query = new ProductDTO.ProductQuery();
+            query.setPage(1);
+            query.setSize(limit);
+            query.setCategoryId(categoryId);
+            query.setStatus(1);
+            query.setSortBy("sales_count");
+            query.setSortOrder("desc");
+            query.setCountMode(ProductDTO.CountMode.HAS_MORE);
+            return getProductList(query);
+        }
+
+        long[] categoryIds = categoryId != null ? categoryTreeCache.current().getDescendantIds(categoryId) : null;
+        List<ProductDTO.ProductListResponse> records = new ArrayList<>(limit);
+        for (ProductDTO.ProductListResponse record : hydrate(productIds)) {
+            if (record.getStatus() == null || record.getStatus() != 1
+                    || (categoryIds != null && Arrays.binarySearch(categoryIds, record.getCategoryId()) < 0)) {
+                hotProductLeaderboard.remove(categoryId, record.getId());
+                continue;
+            }
+            if (records.size() < limit) {
+                records.add(record);
+            }
+        }
+
         ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = new ProductDTO.PageResponse<>();
         response.setRecords(records);
-        response.setTotal(total);
+        response.setPage(1);
+        response.setSize(limit);
+        response.setHasMore(productIds.size() > records.size());
+        return response;
+    }
+
+    /**
+     * 按需附加分面统计（来自进程内索引，不额外查询数据库），分类取值补充分类名称
+     */
+    private ProductDTO.PageResponse<ProductDTO.ProductListResponse> attachFacets(ProductDTO.ProductQuery query,
+                                                                              ProductDTO.PageResponse<ProductDTO.ProductListResponse> response) {
+        if (!query.isFacets() || !productSearchIndex.isReady()) {
+            return response;
+        }
+        ProductDTO.FacetResponse facets = productSearchIndex.facets(query);
+        if (facets != null) {
+            CategoryTree categoryTree = categoryTreeCache.current();
+            for (ProductDTO.FacetValue value : facets.getCategories()) {
+                Category category = categoryTree.getCategory(Long.valueOf(value.getValue()));
+                if (category != null) {
+                    value.setLabel(category.getName());
+                }
+            }
+        }
+        response.setFacets(facets);
+        return response;
+    }
+
+    /**
+     * 根据搜索索引返回的商品ID组装分页结果，商品数据从缓存读取
+     */
+    private ProductDTO.PageResponse<ProductDTO.ProductListResponse> buildSearchPage(ProductSearchIndex.SearchResult result, int page, int size) {
+        int pages = (int) Math.ceil((double) result.getTotal() / size);
+
+        ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = new ProductDTO.PageResponse<>();
+        response.setRecords(hydrate(result.getProductIds()));
+        response.setTotal(result.getTotal());
         response.setPage(page);
         response.setSize(size);
         response.setPages(pages);
+        response.setTotalExact(true);
+        response.setHasMore(page < pages);
+        return response;
+    }
+
+    /**
+     * 按给定顺序读取商品列表数据，已删除的商品会被跳过
+     */
+    private List<ProductDTO.ProductListResponse> hydrate(List<Long> productIds) {
+        Map<Long, ProductDTO.ProductResponse> details = productDetailCache.getAll(productIds, this::loadProductDetails);
+        List<ProductDTO.ProductListResponse> records = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            ProductDTO.ProductResponse detail = details.get(productId);
+            if (detail != null) {
+                ProductDTO.ProductListResponse record = new ProductDTO.ProductListResponse();
+                BeanUtils.copyProperties(detail, record);
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 游标分页：从上一页最后一行之后定位，每页代价与第一页相同，不统计总数
+     */
+    private ProductDTO.PageResponse<ProductDTO.ProductListResponse> getProductListByCursor(ProductDTO.ProductQuery query) {
+        int size = query.getSize() != null ? query.getSize() : 10;
+        ProductCursor cursor = ProductCursor.decode(query.getCursor(), query);
+
+        // 多取一条用于判断是否还有下一页
+        List<ProductDTO.ProductListResponse> records = productMapper.findProductsAfterCursor(query, cursor, size + 1);
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+
+        ProductDTO.PageResponse<ProductDTO.ProductListResponse> response = new ProductDTO.PageResponse<>();
+        response.setRecords(records);
+        response.setSize(size);
+        response.setHasMore(hasMore);
+        if (hasMore) {
+            response.setNextCursor(ProductCursor.after(query, records.get(records.size() - 1)).encode());
+        }
 
         return response;
     }
@@ -154,14 +494,15 @@ public class ProductServiceImpl implements ProductService {
             throw new RuntimeException("商品状态更新失败");
         }
 
+        eventPublisher.publishEvent(ProductChangedEvent.statusChanged(productId, product.getCategoryId(), status));
         log.info("商品状态更新成功，商品ID：{}，状态：{}", productId, status);
     }
 
     @Override
     @Transactional
     public boolean decreaseStock(Long productId, Integer quantity) {
-        int result = productMapper.decreaseStock(productId, quantity);
-        if (result > 0) {
+        if (inventoryBucketService.decreaseStock(productId, quantity)) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
             log.info("商品库存减少成功，商品ID：{}，减少数量：{}", productId, quantity);
             return true;
         } else {
@@ -170,17 +511,82 @@ public class ProductServiceImpl implements ProductService {
         }
     }
 
+    @Override
+    public List<ProductDTO.StockShortage> decreaseStocks(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 统一按商品ID升序加锁和更新；分桶商品的库存不在 product 行中，不锁定 product 行
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Map<Long, Integer> plain = new TreeMap<>();
+        Map<Long, Integer> bucketed = new TreeMap<>();
+        sorted.forEach((productId, quantity) ->
+                (inventoryBucketService.isBucketed(productId) ? bucketed : plain).put(productId, quantity));
+        try {
+            return deadlockRetryTemplate.execute(() -> doDecreaseStocks(sorted, plain, bucketed));
+        } catch (StockShortageException e) {
+            log.warn("商品库存批量减少失败，库存不足的商品：{}", e.shortages);
+            return e.shortages;
+        }
+    }
+
+    private List<ProductDTO.StockShortage> doDecreaseStocks(Map<Long, Integer> sorted, Map<Long, Integer> plain,
+                                                           Map<Long, Integer> bucketed) {
+        Map<Long, Product> locked = new HashMap<>();
+        if (!plain.isEmpty()) {
+            for (Product product : productMapper.lockStocks(plain.keySet())) {
+                locked.put(product.getId(), product);
+            }
+        }
+
+        List<ProductDTO.StockShortage> shortages = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : plain.entrySet()) {
+            Product product = locked.get(entry.getKey());
+            int available = product != null && product.getStock() != null ? product.getStock() : 0;
+            if (available < entry.getValue()) {
+                shortages.add(shortage(entry.getKey(), product, entry.getValue()));
+            }
+        }
+        if (shortages.isEmpty()) {
+            for (Map.Entry<Long, Integer> entry : bucketed.entrySet()) {
+                if (!inventoryBucketService.decreaseStock(entry.getKey(), entry.getValue())) {
+                    shortages.add(shortage(entry.getKey(), productMapper.selectById(entry.getKey()), entry.getValue()));
+                }
+            }
+        }
+        if (!shortages.isEmpty()) {
+            // 抛出异常使自行开启的事务回滚已扣减的分桶库存；在调用方事务中时由调用方回滚
+            throw new StockShortageException(shortages);
+        }
+
+        // 行已锁定且库存已校验，更新必然全部命中
+        if (!plain.isEmpty() && productMapper.decreaseStocks(plain) < plain.size()) {
+            throw new RuntimeException("商品库存批量减少失败");
+        }
+        for (Long productId : sorted.keySet()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+        }
+        log.info("商品库存批量减少成功，扣减明细：{}", sorted);
+        return shortages;
+    }
+
     @Override
     @Transactional
     public void increaseStock(Long productId, Integer quantity) {
-        int result = productMapper.increaseStock(productId, quantity);
-        if (result <= 0) {
+        if (!inventoryBucketService.increaseStock(productId, quantity)) {
             throw new RuntimeException("商品库存增加失败");
         }
 
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
         log.info("商品库存增加成功，商品ID：{}，增加数量：{}", productId, quantity);
     }
 
+    @Override
+    public void updateStockBuckets(Long productId, Integer buckets) {
+        inventoryBucketService.configure(productId, buckets);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+    }
+
     @Override
     @Transactional
     public void updateSalesCount(Long productId, Integer quantity) {
@@ -189,6 +595,29 @@ public class ProductServiceImpl implements ProductService {
             throw new RuntimeException("商品销量更新失败");
         }
 
+        eventPublisher.publishEvent(ProductChangedEvent.salesChanged(productId, quantity));
         log.info("商品销量更新成功，商品ID：{}，增加销量：{}", productId, quantity);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批量扣减时有商品库存不足
+     */
+    private static class StockShortageException extends RuntimeException {
+
+        private final List<ProductDTO.StockShortage> shortages;
+
+        StockShortageException(List<ProductDTO.StockShortage> shortages) {
+            super("商品库存不足");
+            this.shortages = shortages;
+        }
+    }
+
+    private static ProductDTO.StockShortage shortage(Long productId, Product product, Integer requested) {
+        ProductDTO.StockShortage shortage = new ProductDTO.StockShortage();
+        shortage.setProductId(productId);
+        shortage.setProductName(product != null ? product.getName() : null);
+        shortage.setRequested(requested);
+        shortage.setAvailable(product != null && product.getStock() != null ? Math.max(0, product.getStock()) : 0);
+        return shortage;
+    }
+}
@@ -4,6 +4,7 @@ import com.example.ecommerce.dto.UserDTO;
 import com.example.ecommerce.entity.User;
 import com.example.ecommerce.mapper.UserMapper;
 import com.example.ecommerce.service.UserService;
+import com.example.ecommerce.utils.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -21,6 +22,7 @@ public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final JwtTokenProvider jwtTokenProvider;
 
     @Override
     @Transactional
@@ -75,8 +77,8 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("密码错误");
         }
 
-        // 生成JWT token（这里暂时返回用户ID作为token，实际项目中应该生成JWT）
-        String token = "user_" + user.getId() + "_" + System.currentTimeMillis();
+        // 生成JWT token（subject 为用户ID）
+        String token = jwtTokenProvider.createToken(user.getId());
 
         // 构建响应
         UserDTO.UserResponse userResponse = new UserDTO.UserResponse();
@@ -0,0 +1,74 @@
+package com.example.ecommerce.utils;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+/**
+ * 登录令牌（JWT，HS256 签名）
+ * <p>
+ * 令牌的 subject 为用户ID；签名密钥由 jwt.secret 经 SHA-256 得到，配置的密钥长度不足 256 位时也可使用
+ */
+@Slf4j
+@Component
+public class JwtTokenProvider {
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    /**
+     * 令牌有效期，单位：秒
+     */
+    @Value("${jwt.expiration:86400}")
+    private long expirationSeconds;
+
+    private SecretKey key;
+
+    @PostConstruct
+    public void init() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            key = Keys.hmacShaKeyFor(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JWT签名密钥初始化失败", e);
+        }
+    }
+
+    /**
+     * 为用户签发令牌
+     */
+    public String createToken(Long userId) {
+        Date now = new Date();
+        return Jwts.builder()
+                .subject(String.valueOf(userId))
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + expirationSeconds * 1000))
+                .signWith(key)
+                .compact();
+    }
+
+    /**
+     * 校验令牌并取出用户ID
+     *
+     * @return 签名无效、已过期或格式错误时返回 null
+     */
+    public Long parseUserId(String token) {
+        try {
+            String subject = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+            return Long.valueOf(subject);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("令牌无效：{}", e.getMessage());
+            return null;
+        }
+    }
+}
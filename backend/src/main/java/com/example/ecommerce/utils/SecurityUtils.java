@@ -0,0 +1,32 @@
+package com.example.ecommerce.utils;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * 安全上下文工具类
+ */
+public final class SecurityUtils {
+
+    private SecurityUtils() {
+    }
+
+    /**
+     * 获取当前登录用户的ID（认证信息由 JwtAuthenticationFilter 根据登录令牌写入，name 为用户ID）
+     *
+     * @throws RuntimeException 未登录或无法识别用户时
+     */
+    public static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            throw new RuntimeException("用户未登录");
+        }
+        try {
+            return Long.valueOf(authentication.getName());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("无法识别当前用户");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ecommerce.web;
+
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.controller.CategoryController;
+import com.example.ecommerce.controller.ProductController;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 为商品、分类接口的成功响应生成强 ETag（data 部分的内容哈希）并登记；
+ * 商品详情同时以 updatedAt 作为 Last-Modified。请求条件匹配时返回 304 且不写响应体
+ */
+@ControllerAdvice(assignableTypes = {ProductController.class, CategoryController.class})
+@RequiredArgsConstructor
+public class ConditionalGetAdvice implements ResponseBodyAdvice<Object> {
+
+    private final EtagRegistry etagRegistry;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof Result) || ((Result<?>) body).getCode() != 200
+                || !(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        // 未经拦截器（非 GET 或不参与的路径）或已自行设置 ETag 的响应（如分类树）不处理
+        if (servletRequest.getAttribute(ConditionalGetInterceptor.KEY_ATTRIBUTE) == null
+                || response.getHeaders().getETag() != null) {
+            return body;
+        }
+        EtagRegistry.Tag tag = EtagRegistry.tagOf(((Result<?>) body).getData());
+        boolean notModified = etagRegistry.checkNotModified(servletRequest,
+                ((ServletServerHttpResponse) response).getServletResponse(), tag);
+        return notModified ? null : body;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.ecommerce.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 条件请求拦截器
+ * 请求的 ETag 已登记且与 If-None-Match（或 If-Modified-Since）匹配时直接返回 304，不进入控制器
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    static final String KEY_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".key";
+
+    static final String GENERATION_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".generation";
+
+    private final EtagRegistry etagRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String key = etagRegistry.keyOf(path, request.getQueryString());
+        if (key == null) {
+            return true;
+        }
+        request.setAttribute(KEY_ATTRIBUTE, key);
+        request.setAttribute(GENERATION_ATTRIBUTE, etagRegistry.generation());
+
+        EtagRegistry.Tag tag = etagRegistry.get(key);
+        if (tag != null && new ServletWebRequest(request, response).checkNotModified(tag.getEtag(), tag.getLastModified())) {
+            response.setHeader("Cache-Control", "no-cache");
+            etagRegistry.recordNotModified();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.ecommerce.web;
+
+import com.example.ecommerce.cache.CacheInvalidationBus;
+import com.example.ecommerce.cache.LocalCache;
+import com.example.ecommerce.cache.ProductChangeBroadcaster;
+import com.alibaba.fastjson2.JSON;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.dto.ProductDTO;
+import com.example.ecommerce.event.ProductChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 目录类 GET 接口的 ETag 登记表
+ * 响应首次生成时计算内容哈希并按 URL 记录，之后的条件请求只需查表即可返回 304；
+ * 订阅与各级缓存相同的失效主题，数据变更后对应的 ETag 随缓存一起失效
+ */
+@Component
+@RequiredArgsConstructor
+public class EtagRegistry implements StatsProvider {
+
+    private static final Pattern PRODUCT_DETAIL = Pattern.compile("^/products/(\\d+)$");
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final ProductChangeBroadcaster changeBroadcaster;
+
+    /**
+     * 失效代数：响应生成期间发生失效时不登记，避免旧内容的 ETag 在失效后残留
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder notModified = new LongAdder();
+
+    private final LongAdder registrations = new LongAdder();
+
+    private final LongAdder debouncedInvalidations = new LongAdder();
+
+    private final AtomicBoolean listInvalidationScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService invalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "etag-list-invalidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.http.etag.maximum-size:20000}")
+    private int maximumSize;
+
+    @Value("${app.http.etag.ttl:10m}")
+    private Duration ttl;
+
+    /**
+     * 库存、图片变更后清空列表 ETag 的合并间隔
+     */
+    @Value("${app.http.etag.list-debounce:1s}")
+    private Duration listDebounce;
+
+    // 商品详情按商品ID登记，列表和分类按完整 URL 登记
+    private LocalCache<String, Tag> productTags;
+    private LocalCache<String, Tag> listTags;
+    private LocalCache<String, Tag> categoryTags;
+
+    @PostConstruct
+    public void init() {
+        productTags = new LocalCache<>(maximumSize, ttl);
+        listTags = new LocalCache<>(maximumSize, ttl);
+        categoryTags = new LocalCache<>(maximumSize, ttl);
+
+        // 详情失效只影响该商品（库存、图片变更也会发出，不能因此清空全部列表）
+        invalidationBus.subscribe("product-detail", productId -> {
+            generation.incrementAndGet();
+            productTags.invalidate(productId);
+        });
+        // 列表响应包含库存和主图（从详情缓存填充），库存、图片变更同样使列表 ETag 失效；
+        // 这类变更随下单高频发生，合并在 list-debounce 内只清空一次
+        changeBroadcaster.subscribe(event -> {
+            ProductChangedEvent.Type type = event.getType();
+            if (type == ProductChangedEvent.Type.STOCK_CHANGED || type == ProductChangedEvent.Type.IMAGES_CHANGED) {
+                invalidateListsDebounced();
+            } else {
+                invalidateLists();
+            }
+        });
+        invalidationBus.subscribe("product-count", key -> invalidateLists());
+        // 商品详情和列表中包含分类名称
+        invalidationBus.subscribe("category", key -> {
+            generation.incrementAndGet();
+            productTags.invalidateAll();
+            listTags.invalidateAll();
+            categoryTags.invalidateAll();
+        });
+    }
+
+    /**
+     * 解析请求对应的登记 key，不参与条件请求的路径返回 null
+     *
+     * @param path  去掉 context-path 的请求路径
+     * @param query 查询字符串，可为 null
+     */
+    public String keyOf(String path, String query) {
+        Matcher matcher = PRODUCT_DETAIL.matcher(path);
+        if (matcher.matches()) {
+            return "p:" + matcher.group(1);
+        }
+        String url = query == null ? path : path + "?" + query;
+        if (path.startsWith("/products")) {
+            return "l:" + url;
+        }
+        if (path.startsWith("/categories")) {
+            return "c:" + url;
+        }
+        return null;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Tag get(String key) {
+        return cacheFor(key).getIfPresent(key.substring(2));
+    }
+
+    /**
+     * 登记响应的 ETag；generation 为开始处理请求时的失效代数
+     */
+    public void register(String key, Tag tag, long generation) {
+        if (this.generation.get() == generation) {
+            cacheFor(key).put(key.substring(2), tag);
+            registrations.increment();
+        }
+    }
+
+    /**
+     * 登记响应的校验信息并按请求头判断是否未修改
+     * 未经 ConditionalGetInterceptor 的请求不处理；返回 true 时已设置 304 状态，调用方不应再写响应体
+     */
+    public boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, Tag tag) {
+        String key = (String) request.getAttribute(ConditionalGetInterceptor.KEY_ATTRIBUTE);
+        if (key == null) {
+            return false;
+        }
+        register(key, tag, (Long) request.getAttribute(ConditionalGetInterceptor.GENERATION_ATTRIBUTE));
+        response.setHeader("Cache-Control", "no-cache");
+        // 同时写入 ETag 和 Last-Modified 响应头
+        if (new ServletWebRequest(request, response).checkNotModified(tag.getEtag(), tag.getLastModified())) {
+            notModified.increment();
+            return true;
+        }
+        return false;
+    }
+
+    void recordNotModified() {
+        notModified.increment();
+    }
+
+    /**
+     * 由响应数据计算校验信息：ETag 为 data 序列化结果的内容哈希（各节点一致），
+     * 商品详情以 updatedAt 作为 Last-Modified
+     */
+    public static Tag tagOf(Object data) {
+        long lastModified = -1;
+        if (data instanceof ProductDTO.ProductResponse) {
+            ProductDTO.ProductResponse product = (ProductDTO.ProductResponse) data;
+            if (product.getUpdatedAt() != null) {
+                lastModified = product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+        }
+        return new Tag("\"" + hash(JSON.toJSONBytes(data)) + "\"", lastModified);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "etagRegistry";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("notModified", notModified.sum());
+        stats.put("registrations", registrations.sum());
+        stats.put("generation", generation.get());
+        stats.put("debouncedInvalidations", debouncedInvalidations.sum());
+        stats.put("products", productTags.snapshot());
+        stats.put("lists", listTags.snapshot());
+        stats.put("categories", categoryTags.snapshot());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        invalidator.shutdownNow();
+    }
+
+    private void invalidateLists() {
+        generation.incrementAndGet();
+        listTags.invalidateAll();
+    }
+
+    /**
+     * 立即推进失效代数（变更期间生成的响应不再登记），间隔结束时清空已登记的列表 ETag
+     */
+    private void invalidateListsDebounced() {
+        generation.incrementAndGet();
+        debouncedInvalidations.increment();
+        if (listInvalidationScheduled.compareAndSet(false, true)) {
+            invalidator.schedule(() -> {
+                listInvalidationScheduled.set(false);
+                invalidateLists();
+            }, listDebounce.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalCache<String, Tag> cacheFor(String key) {
+        switch (key.charAt(0)) {
+            case 'p':
+                return productTags;
+            case 'l':
+                return listTags;
+            default:
+                return categoryTags;
+        }
+    }
+
+    /**
+     * 已登记的校验信息
+     */
+    public static final class Tag {
+
+        private final String etag;
+
+        private final long lastModified;
+
+        public Tag(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * 最后修改时间（毫秒），未知时为 -1
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.ecommerce.web;
+
+import com.example.ecommerce.cache.LocalCache;
+import com.example.ecommerce.cache.SingleFlight;
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.common.StatsProvider;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 幂等键（Idempotency-Key 请求头）
+ * <p>
+ * 同一用户对同一操作使用相同幂等键的请求只执行一次：首次成功的 Result 序列化后保存在本地缓存和 Redis 中，
+ * 重复请求直接返回保存的结果，不再执行业务逻辑、不访问数据库。
+ * 并发的重复请求在本节点内合并等待同一次执行（SingleFlight），跨节点时通过 Redis 中的处理中标记等待首个请求的结果。
+ * 失败的结果不保存（业务事务已回滚），客户端可用同一幂等键重试。Redis 不可用时只在本节点内去重。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyGuard implements StatsProvider {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private static final String PENDING = "PENDING";
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final SingleFlight<String, String> inFlight = new SingleFlight<>();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder replays = new LongAdder();
+
+    private final LongAdder remoteWaits = new LongAdder();
+
+    private final LongAdder redisFailures = new LongAdder();
+
+    /**
+     * 成功结果的保留时间
+     */
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    /**
+     * 处理中标记的有效期，执行节点宕机时到期后允许重新执行
+     */
+    @Value("${app.idempotency.lock-ttl:30s}")
+    private Duration lockTtl;
+
+    /**
+     * 等待其他节点上的首个请求完成的最长时间
+     */
+    @Value("${app.idempotency.wait-timeout:5s}")
+    private Duration waitTimeout;
+
+    @Value("${app.idempotency.local-maximum-size:10000}")
+    private int localMaximumSize;
+
+    private LocalCache<String, String> localResults;
+
+    @PostConstruct
+    public void init() {
+        localResults = new LocalCache<>(localMaximumSize, ttl);
+    }
+
+    /**
+     * 按幂等键执行，未携带幂等键时直接执行
+     *
+     * @param operation      操作名（不同操作的幂等键互不影响）
+     * @param userId         用户ID
+     * @param idempotencyKey 客户端提供的幂等键
+     * @param dataType       Result 中 data 的类型，用于反序列化保存的结果
+     */
+    public <T> Result<T> execute(String operation, Long userId, String idempotencyKey, Class<T> dataType,
+                                 Supplier<Result<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Result.error("幂等键长度不能超过" + MAX_KEY_LENGTH);
+        }
+        String key = KEY_PREFIX + operation + ":" + userId + ":" + idempotencyKey;
+        try {
+            String body = inFlight.load(key, () -> run(key, action));
+            JavaType type = objectMapper.getTypeFactory().constructParametricType(Result.class, dataType);
+            return objectMapper.readValue(body, type);
+        } catch (Exception e) {
+            log.warn("幂等请求处理失败，幂等键：{}，原因：{}", key, e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "idempotency";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("replays", replays.sum());
+        stats.put("remoteWaits", remoteWaits.sum());
+        stats.put("redisFailures", redisFailures.sum());
+        stats.put("local", localResults.snapshot());
+        stats.put("inFlight", inFlight.snapshot());
+        return stats;
+    }
+
+    /**
+     * 本节点内同一幂等键同时只有一个线程进入
+     */
+    private String run(String key, Supplier<? extends Result<?>> action) {
+        String stored = localResults.getIfPresent(key);
+        if (stored != null) {
+            replays.increment();
+            return stored;
+        }
+
+        boolean redisAvailable = true;
+        long deadline = System.currentTimeMillis() + waitTimeout.toMillis();
+        for (;;) {
+            try {
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, PENDING, lockTtl))) {
+                    break;
+                }
+                stored = redisTemplate.opsForValue().get(key);
+            } catch (Exception e) {
+                redisFailures.increment();
+                log.warn("幂等键存储不可用，仅在本节点内去重：{}", e.getMessage());
+                redisAvailable = false;
+                break;
+            }
+            if (stored != null && !PENDING.equals(stored)) {
+                replays.increment();
+                localResults.put(key, stored);
+                return stored;
+            }
+            // 首个请求正在其他节点上执行（标记消失说明其失败，下一轮重新抢占）
+            if (stored != null) {
+                remoteWaits.increment();
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new RuntimeException("请求正在处理中，请稍后重试");
+                }
+                sleep();
+            }
+        }
+
+        executions.increment();
+        String body;
+        boolean succeeded;
+        try {
+            Result<?> result = action.get();
+            succeeded = result.getCode() == 200;
+            body = objectMapper.writeValueAsString(result);
+        } catch (Exception e) {
+            release(key, redisAvailable);
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        if (!succeeded) {
+            release(key, redisAvailable);
+            return body;
+        }
+        localResults.put(key, body);
+        if (redisAvailable) {
+            try {
+                redisTemplate.opsForValue().set(key, body, ttl);
+            } catch (Exception e) {
+                redisFailures.increment();
+                log.warn("幂等结果保存失败，幂等键：{}，原因：{}", key, e.getMessage());
+            }
+        }
+        return body;
+    }
+
+    private void release(String key, boolean redisAvailable) {
+        if (!redisAvailable) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            redisFailures.increment();
+            log.warn("幂等处理中标记清除失败，幂等键：{}，原因：{}", key, e.getMessage());
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待幂等请求结果被中断", e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.ecommerce.web;
+
+import com.example.ecommerce.cache.CacheInvalidationBus;
+import com.example.ecommerce.cache.LocalCache;
+import com.example.ecommerce.cache.ProductChangeBroadcaster;
+import com.example.ecommerce.common.Result;
+import com.example.ecommerce.common.StatsProvider;
+import com.example.ecommerce.event.ProductChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 热点商品响应的序列化结果缓存
+ * 缓存商品详情、热销列表完整 Result 的 UTF-8 JSON 字节（较大的同时缓存 gzip 压缩结果），
+ * 命中时直接写入输出流，不再创建 Result/DTO 对象、不再经过 Jackson 序列化；
+ * 订阅与详情缓存相同的失效主题，商品写入后随之失效
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResponseBodyCache implements StatsProvider {
+
+    private static final Pattern GZIP_REJECTED = Pattern.compile("\\s*;\\s*q\\s*=\\s*0(\\.0*)?\\s*");
+
+    private final ObjectMapper objectMapper;
+
+    private final EtagRegistry etagRegistry;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final ProductChangeBroadcaster changeBroadcaster;
+
+    /**
+     * 失效代数：序列化期间发生失效时不写入缓存，避免旧内容在失效后被缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder gzipWrites = new LongAdder();
+
+    @Value("${app.http.body-cache.detail-maximum-size:2000}")
+    private int detailMaximumSize;
+
+    @Value("${app.http.body-cache.detail-ttl:10m}")
+    private Duration detailTtl;
+
+    @Value("${app.http.body-cache.featured-maximum-size:200}")
+    private int featuredMaximumSize;
+
+    @Value("${app.http.body-cache.featured-ttl:30s}")
+    private Duration featuredTtl;
+
+    @Value("${app.http.body-cache.gzip-min-size:1024}")
+    private int gzipMinSize;
+
+    private LocalCache<Long, CachedBody> detailBodies;
+
+    // key 为 "分类ID:数量"，全站榜单分类ID为空
+    private LocalCache<String, CachedBody> featuredBodies;
+
+    @PostConstruct
+    public void init() {
+        detailBodies = new LocalCache<>(detailMaximumSize, detailTtl);
+        featuredBodies = new LocalCache<>(featuredMaximumSize, featuredTtl);
+
+        // 详情失效只影响该商品（库存、图片变更也会发出，不能因此清空热销列表）
+        invalidationBus.subscribe("product-detail", productId -> {
+            generation.incrementAndGet();
+            detailBodies.invalidate(Long.valueOf(productId));
+        });
+        // 与 ProductListCache、热销榜一致，库存和图片变更不清空热销列表，由 featured-ttl 兜底
+        changeBroadcaster.subscribe(event -> {
+            ProductChangedEvent.Type type = event.getType();
+            if (type != ProductChangedEvent.Type.STOCK_CHANGED && type != ProductChangedEvent.Type.IMAGES_CHANGED) {
+                generation.incrementAndGet();
+                featuredBodies.invalidateAll();
+            }
+        });
+        // 响应中包含分类名称
+        invalidationBus.subscribe("category", key -> {
+            generation.incrementAndGet();
+            detailBodies.invalidateAll();
+            featuredBodies.invalidateAll();
+        });
+    }
+
+    /**
+     * 开始查询前读取失效代数，写入缓存时传回
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public CachedBody getDetail(Long productId) {
+        return record(detailBodies.getIfPresent(productId));
+    }
+
+    public CachedBody putDetail(Long productId, Object data, long generation) throws IOException {
+        CachedBody body = serialize(data);
+        if (this.generation.get() == generation) {
+            detailBodies.put(productId, body);
+        }
+        return body;
+    }
+
+    public CachedBody getFeatured(Long categoryId, int limit) {
+        return record(featuredBodies.getIfPresent(categoryId + ":" + limit));
+    }
+
+    public CachedBody putFeatured(Long categoryId, int limit, Object data, long generation) throws IOException {
+        CachedBody body = serialize(data);
+        if (this.generation.get() == generation) {
+            featuredBodies.put(categoryId + ":" + limit, body);
+        }
+        return body;
+    }
+
+    /**
+     * 写出缓存的响应：处理条件请求，客户端支持时写出 gzip 压缩结果
+     */
+    public void write(CachedBody body, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (etagRegistry.checkNotModified(request, response, body.tag)) {
+            return;
+        }
+        byte[] content = body.json;
+        if (body.gzip != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                content = body.gzip;
+                gzipWrites.increment();
+            }
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    /**
+     * 直接写出不缓存的结果（如错误响应），格式与控制器返回值一致
+     */
+    public void writeResult(Result<?> result, HttpServletResponse response) throws IOException {
+        byte[] content = objectMapper.writeValueAsBytes(result);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "responseBodyCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("gzipWrites", gzipWrites.sum());
+        stats.put("details", detailBodies.snapshot());
+        stats.put("featured", featuredBodies.snapshot());
+        return stats;
+    }
+
+    private CachedBody record(CachedBody body) {
+        if (body != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return body;
+    }
+
+    /**
+     * 序列化为与控制器返回值相同的 Result JSON；timestamp 为生成时间
+     */
+    private CachedBody serialize(Object data) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(Result.success(data));
+        byte[] gzip = null;
+        if (json.length >= gzipMinSize) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(json);
+            }
+            // 压缩收益不明显时只保留原文
+            if (out.size() < json.length * 9 / 10) {
+                gzip = out.toByteArray();
+            }
+        }
+        return new CachedBody(json, gzip, EtagRegistry.tagOf(data));
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        int index = acceptEncoding == null ? -1 : acceptEncoding.indexOf("gzip");
+        if (index < 0) {
+            return false;
+        }
+        // 显式 q=0 表示不接受
+        int end = acceptEncoding.indexOf(',', index);
+        String params = acceptEncoding.substring(index + 4, end < 0 ? acceptEncoding.length() : end);
+        return !GZIP_REJECTED.matcher(params).matches();
+    }
+
+    /**
+     * 缓存的响应字节
+     */
+    public static final class CachedBody {
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private final EtagRegistry.Tag tag;
+
+        CachedBody(byte[] json, byte[] gzip, EtagRegistry.Tag tag) {
+            this.json = json;
+            this.gzip = gzip;
+            this.tag = tag;
+        }
+    }
+}
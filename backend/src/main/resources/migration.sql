@@ -28,3 +28,56 @@ ALTER TABLE order_item CHANGE COLUMN deleted is_deleted TINYINT DEFAULT 0 COMMEN
 
 -- 更新支付记录表
 ALTER TABLE payment CHANGE COLUMN deleted is_deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除';
+
+-- 商品列表游标分页索引（InnoDB 二级索引隐含主键，等价于 (排序字段, id)）
+ALTER TABLE product ADD INDEX idx_sales_count (sales_count), ADD INDEX idx_created_at (created_at);
+
+-- 商品全文索引改用 ngram 分词（默认 ngram_token_size=2），支持中文 MATCH ... AGAINST 检索
+ALTER TABLE product DROP INDEX ft_name_desc, ADD FULLTEXT KEY ft_name_desc (name, description) WITH PARSER ngram;
+
+-- 分类闭包表，并按现有分类层级初始化
+CREATE TABLE IF NOT EXISTS category_closure (
+    ancestor_id BIGINT NOT NULL COMMENT '祖先分类ID',
+    descendant_id BIGINT NOT NULL COMMENT '后代分类ID',
+    depth INT NOT NULL COMMENT '层级距离，0表示自身',
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_descendant_id (descendant_id)
+) COMMENT '分类闭包表';
+
+INSERT IGNORE INTO category_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth FROM category WHERE is_deleted = 0
+    UNION ALL
+    SELECT t.ancestor_id, c.id, t.depth + 1 FROM tree t
+    JOIN category c ON c.parent_id = t.descendant_id AND c.is_deleted = 0
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
+-- 热点商品库存分桶
+ALTER TABLE product ADD COLUMN stock_buckets INT DEFAULT 0 COMMENT '库存分桶数：0-不分桶，大于0时库存在 inventory_bucket 中' AFTER status;
+
+CREATE TABLE IF NOT EXISTS inventory_bucket (
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    bucket_no INT NOT NULL COMMENT '分桶序号，从0开始',
+    stock INT NOT NULL DEFAULT 0 COMMENT '分桶库存',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (product_id, bucket_no)
+) COMMENT '库存分桶表';
+
+-- 秒杀活动表
+CREATE TABLE IF NOT EXISTS flash_sale (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '秒杀活动ID',
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    price DECIMAL(10,2) NOT NULL COMMENT '秒杀价',
+    total_stock INT NOT NULL COMMENT '活动库存（创建时从商品库存中划出）',
+    sold INT NOT NULL DEFAULT 0 COMMENT '已生成订单的数量',
+    per_user_limit INT NOT NULL DEFAULT 1 COMMENT '每个用户限购数量',
+    start_time DATETIME NOT NULL COMMENT '开始时间',
+    end_time DATETIME NOT NULL COMMENT '结束时间',
+    status TINYINT DEFAULT 1 COMMENT '状态：1-有效，0-已关闭',
+    is_deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_product_id (product_id),
+    INDEX idx_end_time (end_time)
+) COMMENT '秒杀活动表';
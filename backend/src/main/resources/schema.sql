@@ -35,6 +35,15 @@ CREATE TABLE IF NOT EXISTS category (
     INDEX idx_sort_order (sort_order)
 ) COMMENT '商品分类表';
 
+-- 分类闭包表：每个分类与其所有祖先（含自身）各一行，用于按整棵子树筛选商品
+CREATE TABLE IF NOT EXISTS category_closure (
+    ancestor_id BIGINT NOT NULL COMMENT '祖先分类ID',
+    descendant_id BIGINT NOT NULL COMMENT '后代分类ID',
+    depth INT NOT NULL COMMENT '层级距离，0表示自身',
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_descendant_id (descendant_id)
+) COMMENT '分类闭包表';
+
 -- 商品表
 CREATE TABLE IF NOT EXISTS product (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '商品ID',
@@ -48,16 +57,27 @@ CREATE TABLE IF NOT EXISTS product (
     category_id BIGINT NOT NULL COMMENT '分类ID',
     brand VARCHAR(100) COMMENT '品牌',
     status TINYINT DEFAULT 1 COMMENT '状态：1-上架，0-下架',
+    stock_buckets INT DEFAULT 0 COMMENT '库存分桶数：0-不分桶，大于0时库存在 inventory_bucket 中',
     is_deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX idx_category_id (category_id),
     INDEX idx_status (status),
     INDEX idx_price (price),
-    INDEX idx_sales (sales),
-    FULLTEXT KEY ft_name_desc (name, description)
+    INDEX idx_sales_count (sales_count),
+    INDEX idx_created_at (created_at),
+    FULLTEXT KEY ft_name_desc (name, description) WITH PARSER ngram
 ) COMMENT '商品表';
 
+-- 库存分桶表：热点商品的库存拆分到多行，分散并发扣减的行锁
+CREATE TABLE IF NOT EXISTS inventory_bucket (
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    bucket_no INT NOT NULL COMMENT '分桶序号，从0开始',
+    stock INT NOT NULL DEFAULT 0 COMMENT '分桶库存',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (product_id, bucket_no)
+) COMMENT '库存分桶表';
+
 -- 商品图片表
 CREATE TABLE IF NOT EXISTS product_image (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '图片ID',
@@ -147,6 +167,24 @@ CREATE TABLE IF NOT EXISTS order_item (
     INDEX idx_product_id (product_id)
 ) COMMENT '订单项表';
 
+-- 秒杀活动表
+CREATE TABLE IF NOT EXISTS flash_sale (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '秒杀活动ID',
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    price DECIMAL(10,2) NOT NULL COMMENT '秒杀价',
+    total_stock INT NOT NULL COMMENT '活动库存（创建时从商品库存中划出）',
+    sold INT NOT NULL DEFAULT 0 COMMENT '已生成订单的数量',
+    per_user_limit INT NOT NULL DEFAULT 1 COMMENT '每个用户限购数量',
+    start_time DATETIME NOT NULL COMMENT '开始时间',
+    end_time DATETIME NOT NULL COMMENT '结束时间',
+    status TINYINT DEFAULT 1 COMMENT '状态：1-有效，0-已关闭',
+    is_deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_product_id (product_id),
+    INDEX idx_end_time (end_time)
+) COMMENT '秒杀活动表';
+
 -- 支付记录表
 CREATE TABLE IF NOT EXISTS payment (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '支付ID',
@@ -177,6 +215,16 @@ INSERT IGNORE INTO category (id, name, description, parent_id, sort_order) VALUE
 (8, '家具', '各类家具', 3, 1),
 (9, '家纺', '床上用品、窗帘等', 3, 2);
 
+-- 初始化分类闭包表：每个分类的自身行（depth = 0）及其全部祖先行；已有闭包行的分类由 INSERT IGNORE 跳过，只补缺失的行
+INSERT IGNORE INTO category_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth FROM category WHERE is_deleted = 0
+    UNION ALL
+    SELECT t.ancestor_id, c.id, t.depth + 1 FROM tree t
+    JOIN category c ON c.parent_id = t.descendant_id AND c.is_deleted = 0
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
 -- 插入示例商品
 INSERT IGNORE INTO product (id, name, description, price, original_price, stock, category_id, brand, main_image) VALUES
 (1, 'iPhone 15 Pro Max', '苹果最新旗舰手机，搭载A17 Pro芯片', 9999.00, 11999.00, 100, 4, 'Apple', '/images/iphone15.jpg'),
@@ -0,0 +1,139 @@
+package com.example.ecommerce.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = 1767225600000L; // 2026-01-01T00:00:00Z
+
+    @Test
+    void idsAreUniqueAndIncreasingAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = generator(System::currentTimeMillis, 7);
+        int threads = 8;
+        int perThread = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[threads * perThread];
+            for (int t = 0; t < threads; t++) {
+                long[] ids = futures.get(t).get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "单个线程内ID必须递增");
+                }
+                System.arraycopy(ids, 0, all, t * perThread, perThread);
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "ID重复：" + all[i]);
+            }
+            assertEquals(7, all[0] >>> 12 & 0x3FF, "ID中应包含节点ID");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitsForNextMillisecondWhenSequenceIsExhausted() {
+        AtomicLong calls = new AtomicLong();
+        // 前 5000 次读取停留在同一毫秒，之后进入下一毫秒
+        SnowflakeIdGenerator generator = generator(() -> calls.incrementAndGet() > 5000 ? NOW + 1 : NOW, 0);
+
+        long previous = -1;
+        for (int i = 0; i < 4096; i++) {
+            long id = generator.nextId();
+            assertEquals(NOW, timestampOf(id));
+            assertTrue(id > previous);
+            previous = id;
+        }
+        long next = generator.nextId();
+        assertEquals(NOW + 1, timestampOf(next));
+        assertEquals(0, next & 0xFFF);
+    }
+
+    @Test
+    void keepsIncreasingDuringSmallClockRollback() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = generator(clock::get, 1);
+
+        long before = generator.nextId();
+        clock.set(NOW - 500);
+        long during = generator.nextId();
+        clock.set(NOW + 1);
+        long after = generator.nextId();
+
+        assertTrue(during > before);
+        assertTrue(after > during);
+        assertEquals(NOW, timestampOf(during), "回拨期间沿用上次的时间戳");
+        assertEquals(1L, generator.getStats().get("clockBackward"));
+    }
+
+    @Test
+    void rejectsRollbackBeyondLimit() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = generator(clock::get, 1);
+
+        long before = generator.nextId();
+        clock.set(NOW - 2000);
+        assertThrows(RuntimeException.class, generator::nextId);
+        assertEquals(1L, generator.getStats().get("rejected"));
+
+        clock.set(NOW);
+        assertTrue(generator.nextId() > before, "时钟恢复后继续生成");
+    }
+
+    @Test
+    void orderNumbersSortInGenerationOrder() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = generator(clock::get, 3);
+
+        String first = generator.nextOrderNumber("ORD");
+        clock.addAndGet(1000L * 60 * 60 * 24 * 365 * 10);
+        String second = generator.nextOrderNumber("ORD");
+
+        assertEquals(3 + 19, first.length());
+        assertEquals(first.length(), second.length());
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    private static SnowflakeIdGenerator generator(LongSupplier clock, long nodeId) {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(clock);
+        ReflectionTestUtils.setField(generator, "nodeId", nodeId);
+        ReflectionTestUtils.setField(generator, "maxClockBackward", Duration.ofSeconds(1));
+        generator.init();
+        return generator;
+    }
+
+    private static long timestampOf(long id) {
+        return (id >>> 22) + 1704067200000L;
+    }
+}